@@ -0,0 +1,104 @@
+#!/usr/bin/env bash
+#
+# Startup benchmark of the service in JVM, AOT and native image modes.
+# Reports time-to-first-request (process start -> first successful GraphQL response) and RSS after it.
+#
+# Build first:
+#   ./mvnw -Paot -Daot.profiles=aot,local -DskipTests package        # JAR for the 'jvm' and 'aot' modes
+#   ./mvnw -Pnative -Daot.profiles=aot,local -DskipTests native:compile  # executable for the 'native' mode
+# and start Mongo:
+#   docker-compose up -d mongo
+#
+# Run:
+#   ./scripts/startup-benchmark.sh [runs per mode (default 5)] [modes (default: jvm aot native)]
+
+set -euo pipefail
+
+cd "$(dirname "$0")/.."
+
+RUNS="${1:-5}"
+if [ $# -gt 0 ]; then
+    shift
+fi
+if [ $# -gt 0 ]; then
+    MODES=("$@")
+else
+    MODES=(jvm aot native)
+fi
+
+JAR="target/comment-service-blog-platform-0.0.1-SNAPSHOT.jar"
+NATIVE="target/comment-service-blog-platform"
+PORT=8082
+TIMEOUT_SECONDS=60
+QUERY='{"query":"{ getById(id: \"-1\") { id } }"}'
+
+export SPRING_PROFILES_ACTIVE=local
+
+command_of() {
+    case "$1" in
+        jvm)    echo "java -jar $JAR" ;;
+        aot)    echo "java -Dspring.aot.enabled=true -jar $JAR" ;;
+        native) echo "$NATIVE" ;;
+        *)      echo "Unknown mode '$1', expected: jvm, aot, native" >&2; exit 1 ;;
+    esac
+}
+
+now_millis() {
+    echo $(( $(date +%s%N) / 1000000 ))
+}
+
+rss_kb() {
+    ps -o rss= -p "$1" | tr -d ' '
+}
+
+# Prints "<time-to-first-request ms> <rss kb>" for a single start of the service
+run_once() {
+
+    local command="$1"
+    local started_at pid elapsed rss
+
+    started_at=$(now_millis)
+    $command > /dev/null 2>&1 &
+    pid=$!
+
+    until curl -sf -o /dev/null -X POST "http://localhost:$PORT/graphql" \
+            -H 'Content-Type: application/json' -d "$QUERY"; do
+        if ! kill -0 "$pid" 2> /dev/null; then
+            echo "The service exited before serving a request: $command" >&2
+            exit 1
+        fi
+        if (( $(now_millis) - started_at > TIMEOUT_SECONDS * 1000 )); then
+            kill "$pid"
+            echo "The service did not serve a request within $TIMEOUT_SECONDS s: $command" >&2
+            exit 1
+        fi
+        sleep 0.05
+    done
+
+    elapsed=$(( $(now_millis) - started_at ))
+    rss=$(rss_kb "$pid")
+
+    kill "$pid"
+    wait "$pid" 2> /dev/null || true
+
+    echo "$elapsed $rss"
+}
+
+printf "%-8s %6s %26s %18s\n" "mode" "runs" "time-to-first-request, ms" "RSS, MB"
+
+for mode in "${MODES[@]}"; do
+
+    command=$(command_of "$mode") || exit 1
+    total_elapsed=0
+    total_rss=0
+
+    for (( i = 0; i < RUNS; i++ )); do
+        # run_once exits a subshell on failure: its status has to be checked here, 'read <<<' would swallow it
+        out=$(run_once "$command") || exit 1
+        read -r elapsed rss <<< "$out"
+        total_elapsed=$(( total_elapsed + elapsed ))
+        total_rss=$(( total_rss + rss ))
+    done
+
+    printf "%-8s %6d %26d %18d\n" "$mode" "$RUNS" $(( total_elapsed / RUNS )) $(( total_rss / RUNS / 1024 ))
+done
@@ -0,0 +1,40 @@
+package org.example.commentservice.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.example.commentservice.model.CommentActivity;
+import org.example.commentservice.model.DailyCommentCount;
+import org.example.commentservice.service.CommentActivityService;
+import org.springframework.graphql.data.method.annotation.Argument;
+import org.springframework.graphql.data.method.annotation.QueryMapping;
+import org.springframework.graphql.data.method.annotation.SchemaMapping;
+import org.springframework.stereotype.Controller;
+
+import java.util.List;
+import java.util.Map;
+
+@Controller
+@RequiredArgsConstructor
+public class CommentActivityController {
+
+    private final CommentActivityService commentActivityService;
+
+    @QueryMapping
+    public CommentActivity getPostActivity(@Argument Long postId) {
+        return commentActivityService.getPostActivity(postId);
+    }
+
+    @QueryMapping
+    public CommentActivity getUserActivity(@Argument Long userId) {
+        return commentActivityService.getUserActivity(userId);
+    }
+
+    // Days without comments (left after deletions) are skipped
+    @SchemaMapping(typeName = "CommentActivity")
+    public List<DailyCommentCount> dailyCounts(CommentActivity commentActivity) {
+        return commentActivity.getDailyCounts().entrySet().stream()
+                .filter(entry -> entry.getValue() > 0)
+                .sorted(Map.Entry.comparingByKey())
+                .map(entry -> new DailyCommentCount(entry.getKey(), entry.getValue()))
+                .toList();
+    }
+}
@@ -0,0 +1,26 @@
+package org.example.commentservice.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.example.commentservice.service.CommentActivityService;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+/**
+ * Admin-only actuator endpoint to rebuild the comment activity ('POST /actuator/commentactivity').
+ * Not exposed over the web by default - add it to 'management.endpoints.web.exposure.include'
+ * only on a management port that is not reachable by the public clients.
+ */
+@Component
+@Endpoint(id = "commentactivity")
+@RequiredArgsConstructor
+public class CommentActivityEndpoint {
+
+    private final CommentActivityService commentActivityService;
+
+    // Returns the number of activity documents after the rebuild
+    @WriteOperation
+    public Integer rebuild() {
+        return commentActivityService.rebuild();
+    }
+}
@@ -1,12 +1,21 @@
 package org.example.commentservice.controller;
 
+import graphql.GraphQLError;
+import graphql.GraphqlErrorBuilder;
+import graphql.schema.DataFetchingEnvironment;
 import lombok.RequiredArgsConstructor;
 import org.example.commentservice.model.Comment;
+import org.example.commentservice.model.CommentPage;
 import org.example.commentservice.service.CommentService;
+import org.example.commentservice.service.InvalidCursorException;
+import org.example.commentservice.throttling.MutationRejectedException;
+import org.example.commentservice.throttling.MutationThrottler;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.graphql.data.method.annotation.Argument;
+import org.springframework.graphql.data.method.annotation.GraphQlExceptionHandler;
 import org.springframework.graphql.data.method.annotation.MutationMapping;
 import org.springframework.graphql.data.method.annotation.QueryMapping;
+import org.springframework.graphql.execution.ErrorType;
 import org.springframework.stereotype.Controller;
 
 import java.time.LocalDateTime;
@@ -17,6 +26,7 @@ import java.util.List;
 public class CommentController {
 
     private final CommentService commentService;
+    private final MutationThrottler mutationThrottler;
 
     @QueryMapping()
     public Comment getById(@Argument String id) {
@@ -33,9 +43,16 @@ public class CommentController {
         return commentService.getAllByUserId(userId);
     }
 
+    @QueryMapping
+    public CommentPage searchComments(@Argument String query, @Argument Long postId, @Argument Long userId,
+                                      @Argument Integer first, @Argument String after) {
+        return commentService.search(query, postId, userId, first, after);
+    }
+
     @MutationMapping
     public Comment create(@Argument Long postId, @Argument Long userId, @Argument String content,
                           @Argument @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime createdAt) {
+        mutationThrottler.acquire(MutationThrottler.Priority.LOW, userId, postId);
         if (createdAt == null) {
             createdAt = LocalDateTime.now();
         }
@@ -45,7 +62,25 @@ public class CommentController {
 
     @MutationMapping
     public String deleteById(@Argument String id) {
+        // Deletion (moderation) is never shed
+        mutationThrottler.acquire(MutationThrottler.Priority.HIGH, null, null);
         commentService.deleteById(id);
         return id;
     }
+
+    @GraphQlExceptionHandler
+    public GraphQLError handle(MutationRejectedException exception, DataFetchingEnvironment environment) {
+        return GraphqlErrorBuilder.newError(environment)
+                .errorType(exception.getReason())
+                .message(exception.getMessage())
+                .build();
+    }
+
+    @GraphQlExceptionHandler
+    public GraphQLError handle(InvalidCursorException exception, DataFetchingEnvironment environment) {
+        return GraphqlErrorBuilder.newError(environment)
+                .errorType(ErrorType.BAD_REQUEST)
+                .message(exception.getMessage())
+                .build();
+    }
 }
@@ -0,0 +1,40 @@
+package org.example.commentservice.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.example.commentservice.model.Comment;
+import org.example.commentservice.service.CommentService;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Streams comments as NDJSON for internal consumers (moderation, search indexers)
+ * that need every comment of a post or a user.
+ * Comments are pulled from the Mongo cursor on demand and written as they arrive,
+ * so memory usage does not depend on the size of the result.
+ */
+@RestController
+@RequestMapping(value = "/export/comments", produces = MediaType.APPLICATION_NDJSON_VALUE)
+@RequiredArgsConstructor
+public class CommentExportController {
+
+    private final CommentService commentService;
+
+    @GetMapping("/post/{postId}")
+    public Flux<Comment> exportAllByPostId(@PathVariable Long postId) {
+        // The cursor is blocking, so it is read on the bounded elastic scheduler.
+        // 'Flux.fromStream' closes the stream (and the cursor) on completion, error or cancellation
+        return Flux.fromStream(() -> commentService.streamAllByPostId(postId))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    @GetMapping("/user/{userId}")
+    public Flux<Comment> exportAllByUserId(@PathVariable Long userId) {
+        return Flux.fromStream(() -> commentService.streamAllByUserId(userId))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+}
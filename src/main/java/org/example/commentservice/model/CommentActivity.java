@@ -0,0 +1,47 @@
+package org.example.commentservice.model;
+
+import lombok.*;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Precomputed comment activity of a single post or user.
+ * Kept up to date incrementally on comment creation and deletion.
+ */
+@Document(collection = "comment_activity")
+@NoArgsConstructor @AllArgsConstructor
+@Getter @Setter
+@EqualsAndHashCode
+@ToString
+public class CommentActivity {
+
+    public enum Scope { POST, USER }
+
+    @Id
+    @EqualsAndHashCode.Exclude
+    private String id;
+
+    private Scope scope;
+    private Long ownerId; // postId or userId, depending on the scope
+    private long commentsCount;
+    private LocalDateTime lastCommentedAt;
+    private Map<String, Long> dailyCounts = new HashMap<>(); // day (yyyy-MM-dd) -> number of comments
+
+    public CommentActivity(Scope scope, Long ownerId) {
+        this.id = idOf(scope, ownerId);
+        this.scope = scope;
+        this.ownerId = ownerId;
+    }
+
+    public static String idOf(Scope scope, Long ownerId) {
+        return scope + ":" + ownerId;
+    }
+
+    public static String dayOf(LocalDateTime dateTime) {
+        return dateTime.toLocalDate().toString();
+    }
+}
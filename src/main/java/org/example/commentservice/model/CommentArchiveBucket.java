@@ -0,0 +1,49 @@
+package org.example.commentservice.model;
+
+import lombok.*;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Archived (cold) comments of a single post for a single month.
+ * Comments past the archiving age are moved here from the 'comments' collection,
+ * so that the hot collection and its indexes stay small.
+ * A bucket holds at most {@link #MAX_COMMENTS} comments, far below the document size limit of Mongo;
+ * the comments of a busier month go to overflow buckets, numbered from 1.
+ */
+@Document(collection = "comments_archive")
+@NoArgsConstructor @AllArgsConstructor
+@Getter @Setter
+@EqualsAndHashCode
+@ToString
+public class CommentArchiveBucket {
+
+    @Id
+    @EqualsAndHashCode.Exclude
+    private String id;
+
+    public static final int MAX_COMMENTS = 500;
+
+    private Long postId;
+    private String month; // yyyy-MM
+    private int number; // 0 for the first bucket of the month, then overflow buckets
+    private int count; // comments ever added - removed comments do not free their slots
+    private List<Comment> comments = new ArrayList<>();
+
+    public static String idOf(Long postId, String month) {
+        return idOf(postId, month, 0);
+    }
+
+    public static String idOf(Long postId, String month, int number) {
+        return number == 0 ? postId + ":" + month : postId + ":" + month + ":" + number;
+    }
+
+    public static String monthOf(LocalDateTime dateTime) {
+        return YearMonth.from(dateTime).toString();
+    }
+}
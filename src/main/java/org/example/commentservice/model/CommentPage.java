@@ -0,0 +1,15 @@
+package org.example.commentservice.model;
+
+import lombok.*;
+
+import java.util.List;
+
+@NoArgsConstructor @AllArgsConstructor
+@Getter @Setter
+@EqualsAndHashCode
+@ToString
+public class CommentPage {
+    private List<Comment> comments;
+    private String endCursor;
+    private boolean hasNextPage;
+}
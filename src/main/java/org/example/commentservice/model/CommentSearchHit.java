@@ -0,0 +1,15 @@
+package org.example.commentservice.model;
+
+import lombok.*;
+
+/**
+ * A comment found by full-text search, with its relevance score.
+ */
+@NoArgsConstructor @AllArgsConstructor
+@Getter @Setter
+@EqualsAndHashCode
+@ToString
+public class CommentSearchHit {
+    private Comment comment;
+    private double score;
+}
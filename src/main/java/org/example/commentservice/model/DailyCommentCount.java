@@ -0,0 +1,12 @@
+package org.example.commentservice.model;
+
+import lombok.*;
+
+@NoArgsConstructor @AllArgsConstructor
+@Getter @Setter
+@EqualsAndHashCode
+@ToString
+public class DailyCommentCount {
+    private String day;
+    private Long count;
+}
@@ -0,0 +1,7 @@
+package org.example.commentservice.repository;
+
+import org.example.commentservice.model.CommentActivity;
+import org.springframework.data.mongodb.repository.MongoRepository;
+
+public interface CommentActivityRepository extends MongoRepository<CommentActivity, String>, CommentActivityRepositoryCustom {
+}
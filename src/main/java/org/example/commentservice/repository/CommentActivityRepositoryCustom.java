@@ -0,0 +1,12 @@
+package org.example.commentservice.repository;
+
+import org.example.commentservice.model.CommentActivity;
+
+import java.time.LocalDateTime;
+
+public interface CommentActivityRepositoryCustom {
+    void increment(CommentActivity.Scope scope, Long ownerId, LocalDateTime commentCreatedAt);
+    void decrement(CommentActivity.Scope scope, Long ownerId, LocalDateTime commentCreatedAt);
+    void updateLastCommentedAt(CommentActivity.Scope scope, Long ownerId, LocalDateTime lastCommentedAt);
+    int rebuildFromComments(CommentActivity.Scope scope);
+}
@@ -0,0 +1,200 @@
+package org.example.commentservice.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.bson.Document;
+import org.example.commentservice.model.Comment;
+import org.example.commentservice.model.CommentActivity;
+import org.example.commentservice.model.CommentArchiveBucket;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOptions;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static org.example.commentservice.repository.MongoQueries.stage;
+
+/**
+ * Besides the mapped fields, every activity document has 'updatedAt' - the server time of its last change,
+ * which tells live updates from the ones made by {@link #rebuildFromComments}.
+ */
+@RequiredArgsConstructor
+public class CommentActivityRepositoryCustomImpl implements CommentActivityRepositoryCustom {
+
+    private static final String UPDATED_AT = "updatedAt";
+    private static final int REBUILD_PASSES_MAX = 3;
+
+    private final MongoTemplate mongoTemplate;
+
+    /**
+     * Atomically counts one more comment, creating the activity document if it does not exist yet.
+     */
+    @Override
+    public void increment(CommentActivity.Scope scope, Long ownerId, LocalDateTime commentCreatedAt) {
+
+        var update = new Update()
+                .setOnInsert("scope", scope)
+                .setOnInsert("ownerId", ownerId)
+                .inc("commentsCount", 1L)
+                .currentDate(UPDATED_AT);
+
+        if (commentCreatedAt != null) {
+            update.inc("dailyCounts." + CommentActivity.dayOf(commentCreatedAt), 1L)
+                    .max("lastCommentedAt", commentCreatedAt);
+        }
+
+        mongoTemplate.upsert(queryById(scope, ownerId), update, CommentActivity.class);
+    }
+
+    /**
+     * Atomically counts one comment less. Does nothing if there is no activity document.
+     * 'lastCommentedAt' is not touched - see {@link #updateLastCommentedAt}.
+     */
+    @Override
+    public void decrement(CommentActivity.Scope scope, Long ownerId, LocalDateTime commentCreatedAt) {
+
+        var update = new Update()
+                .inc("commentsCount", -1L)
+                .currentDate(UPDATED_AT);
+
+        if (commentCreatedAt != null) {
+            update.inc("dailyCounts." + CommentActivity.dayOf(commentCreatedAt), -1L);
+        }
+
+        mongoTemplate.updateFirst(queryById(scope, ownerId), update, CommentActivity.class);
+    }
+
+    @Override
+    public void updateLastCommentedAt(CommentActivity.Scope scope, Long ownerId, LocalDateTime lastCommentedAt) {
+        var update = new Update()
+                .set("lastCommentedAt", lastCommentedAt)
+                .currentDate(UPDATED_AT);
+        mongoTemplate.updateFirst(queryById(scope, ownerId), update, CommentActivity.class);
+    }
+
+    /**
+     * Recomputes the activity of every post (or user) from the 'comments' collection and the archive, on the server:
+     * the result is '$merge'd into the activity collection document by document, so readers never see it empty.
+     * <ul>
+     *     <li>A document changed by a live update after a pass started is kept as is - the pass would otherwise
+     *     overwrite a count it has not seen. Such owners are recomputed by another, targeted pass,
+     *     up to {@value #REBUILD_PASSES_MAX} passes in total.</li>
+     *     <li>Documents of owners that have no comments anymore are removed after the first pass,
+     *     unless they were changed by a live update after it started.</li>
+     * </ul>
+     *
+     * @return number of owners whose activity was left as is, because it kept changing during every pass
+     */
+    @Override
+    public int rebuildFromComments(CommentActivity.Scope scope) {
+
+        var startedAt = serverTime();
+        mergeFromComments(scope, null, startedAt);
+
+        var stale = Query.query(Criteria.where("scope").is(scope.name())
+                .orOperator(Criteria.where(UPDATED_AT).lt(startedAt), Criteria.where(UPDATED_AT).exists(false)));
+        mongoTemplate.remove(stale, CommentActivity.class);
+
+        var skippedOwnerIds = ownerIdsUpdatedSince(scope, null, startedAt);
+        for (int pass = 1; pass < REBUILD_PASSES_MAX && !skippedOwnerIds.isEmpty(); pass++) {
+            startedAt = serverTime();
+            mergeFromComments(scope, skippedOwnerIds, startedAt);
+            skippedOwnerIds = ownerIdsUpdatedSince(scope, skippedOwnerIds, startedAt);
+        }
+
+        return skippedOwnerIds.size();
+    }
+
+    /**
+     * Merges the activity computed from the comments of the given owners (or of all of them, if null)
+     * into the activity collection, except for the documents updated after 'startedAt'.
+     */
+    private void mergeFromComments(CommentActivity.Scope scope, List<Long> ownerIds, Date startedAt) {
+
+        var ownerField = (scope == CommentActivity.Scope.POST) ? "postId" : "userId";
+
+        // Days are computed in the zone of the service, the same way as 'CommentActivity.dayOf' does
+        var day = new Document("$dateToString", new Document("date", "$createdAt")
+                .append("format", "%Y-%m-%d")
+                .append("timezone", ZoneId.systemDefault().getId()));
+
+        var archivePipeline = new ArrayList<Document>();
+        var stages = new ArrayList<AggregationOperation>();
+        if (ownerIds != null) {
+            // Buckets hold the comments of a single post, but of many users
+            var ownersMatch = new Document(ownerField, new Document("$in", ownerIds));
+            stages.add(stage("$match", ownersMatch));
+            var bucketOwnersMatch = new Document((scope == CommentActivity.Scope.POST) ? "postId" : "comments.userId", new Document("$in", ownerIds));
+            archivePipeline.add(new Document("$match", bucketOwnersMatch));
+        }
+        archivePipeline.add(new Document("$unwind", "$comments"));
+        archivePipeline.add(new Document("$project", new Document("_id", 0)
+                .append("owner", "$comments." + ownerField)
+                .append("createdAt", "$comments.createdAt")));
+        var ownerMatch = new Document("owner", ownerIds == null ? new Document("$ne", null) : new Document("$in", ownerIds));
+
+        stages.addAll(List.of(
+                stage("$project", new Document("_id", 0)
+                        .append("owner", "$" + ownerField)
+                        .append("createdAt", 1)),
+                stage("$unionWith", new Document("coll", mongoTemplate.getCollectionName(CommentArchiveBucket.class))
+                        .append("pipeline", archivePipeline)),
+                stage("$match", ownerMatch
+                        .append("createdAt", new Document("$ne", null))),
+                stage("$group", new Document("_id", new Document("owner", "$owner").append("day", day))
+                        .append("count", new Document("$sum", 1L))
+                        .append("lastCommentedAt", new Document("$max", "$createdAt"))),
+                stage("$group", new Document("_id", "$_id.owner")
+                        .append("commentsCount", new Document("$sum", "$count"))
+                        .append("lastCommentedAt", new Document("$max", "$lastCommentedAt"))
+                        .append("days", new Document("$push", new Document("k", "$_id.day").append("v", "$count")))),
+                stage("$project", new Document("_id", new Document("$concat", List.of(scope.name() + ":", new Document("$toString", "$_id"))))
+                        .append("scope", new Document("$literal", scope.name()))
+                        .append("ownerId", "$_id")
+                        .append("commentsCount", 1)
+                        .append("lastCommentedAt", 1)
+                        .append("dailyCounts", new Document("$arrayToObject", "$days"))
+                        .append(UPDATED_AT, "$$NOW")),
+                stage("$merge", new Document("into", mongoTemplate.getCollectionName(CommentActivity.class))
+                        .append("on", "_id")
+                        .append("whenMatched", List.of(new Document("$replaceWith", new Document("$cond", List.of(
+                                new Document("$gt", List.of("$" + UPDATED_AT, startedAt)),
+                                "$$ROOT",
+                                "$$new")))))
+                        .append("whenNotMatched", "insert"))
+        ));
+
+        var aggregation = Aggregation.newAggregation(stages)
+                .withOptions(AggregationOptions.builder().allowDiskUse(true).build());
+        mongoTemplate.aggregate(aggregation, mongoTemplate.getCollectionName(Comment.class), Document.class);
+    }
+
+    // Owners (of the given ones, or of all, if null) whose activity was changed by a live update after 'since'
+    private List<Long> ownerIdsUpdatedSince(CommentActivity.Scope scope, List<Long> ownerIds, Date since) {
+        var criteria = Criteria.where("scope").is(scope.name()).and(UPDATED_AT).gt(since);
+        if (ownerIds != null) {
+            criteria.and("ownerId").in(ownerIds);
+        }
+        var query = Query.query(criteria);
+        query.fields().include("ownerId");
+        return mongoTemplate.find(query, CommentActivity.class).stream()
+                .map(CommentActivity::getOwnerId)
+                .toList();
+    }
+
+    // The server clock, as 'updatedAt' is set by the server ('$currentDate', '$$NOW')
+    private Date serverTime() {
+        return mongoTemplate.executeCommand(new Document("hello", 1)).getDate("localTime");
+    }
+
+    private static Query queryById(CommentActivity.Scope scope, Long ownerId) {
+        return Query.query(Criteria.where("id").is(CommentActivity.idOf(scope, ownerId)));
+    }
+}
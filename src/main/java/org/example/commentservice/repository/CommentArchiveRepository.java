@@ -0,0 +1,14 @@
+package org.example.commentservice.repository;
+
+import org.example.commentservice.model.CommentArchiveBucket;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+public interface CommentArchiveRepository extends MongoRepository<CommentArchiveBucket, String>, CommentArchiveRepositoryCustom {
+    List<CommentArchiveBucket> findAllByPostId(@Param("postId") Long postId);
+
+    Stream<CommentArchiveBucket> streamAllByPostId(@Param("postId") Long postId);
+}
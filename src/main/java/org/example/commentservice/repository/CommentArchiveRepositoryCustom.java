@@ -0,0 +1,24 @@
+package org.example.commentservice.repository;
+
+import org.example.commentservice.model.Comment;
+import org.example.commentservice.model.CommentSearchHit;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+public interface CommentArchiveRepositoryCustom {
+    Optional<Comment> findCommentById(String id);
+    List<Comment> findCommentsByUserId(Long userId);
+    Optional<LocalDateTime> findLastCreatedAtByPostId(Long postId);
+    Optional<LocalDateTime> findLastCreatedAtByUserId(Long userId);
+
+    Stream<Comment> streamCommentsByUserId(Long userId);
+
+    List<CommentSearchHit> searchByContent(String query, Long postId, Long userId, Double afterScore, String afterId, int limit);
+    List<Comment> archive(List<Comment> comments);
+    Optional<Comment> findAndDeleteCommentById(String id);
+    void deleteCommentsById(Collection<String> ids);
+}
@@ -0,0 +1,382 @@
+package org.example.commentservice.repository;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.bson.Document;
+import org.example.commentservice.model.Comment;
+import org.example.commentservice.model.CommentArchiveBucket;
+import org.example.commentservice.model.CommentSearchHit;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.example.commentservice.repository.MongoQueries.afterSearchHit;
+import static org.example.commentservice.repository.MongoQueries.stage;
+import static org.example.commentservice.repository.MongoQueries.toMongoId;
+
+@RequiredArgsConstructor
+@Log4j2
+public class CommentArchiveRepositoryCustomImpl implements CommentArchiveRepositoryCustom {
+
+    private final MongoTemplate mongoTemplate;
+
+    /**
+     * Looks up a single archived comment by its id, without loading the rest of its bucket.
+     */
+    @Override
+    public Optional<Comment> findCommentById(String id) {
+
+        var query = Query.query(Criteria.where("comments._id").is(id));
+        query.fields().elemMatch("comments", Criteria.where("_id").is(id));
+
+        return Optional.ofNullable(mongoTemplate.findOne(query, CommentArchiveBucket.class))
+                .flatMap(bucket -> bucket.getComments().stream().findFirst());
+    }
+
+    /**
+     * Archived comments of a user. Buckets are per post, so the comments of the user are picked out of them
+     * (the buckets are found by the index on 'comments.userId').
+     */
+    @Override
+    public List<Comment> findCommentsByUserId(Long userId) {
+        return mongoTemplate.aggregate(commentsByUserId(userId), mongoTemplate.getCollectionName(CommentArchiveBucket.class), Comment.class)
+                .getMappedResults();
+    }
+
+    @Override
+    public Stream<Comment> streamCommentsByUserId(Long userId) {
+        return mongoTemplate.aggregateStream(commentsByUserId(userId), mongoTemplate.getCollectionName(CommentArchiveBucket.class), Comment.class);
+    }
+
+    private static Aggregation commentsByUserId(Long userId) {
+        var match = new Document("comments.userId", userId);
+        return Aggregation.newAggregation(
+                stage("$match", match),
+                stage("$unwind", "$comments"),
+                stage("$match", match),
+                stage("$replaceRoot", new Document("newRoot", "$comments")));
+    }
+
+    /**
+     * Creation time of the latest archived comment of a post. Buckets are read latest month first
+     * (by the '{postId: 1, month: -1}' index) until one that still has comments.
+     */
+    @Override
+    public Optional<LocalDateTime> findLastCreatedAtByPostId(Long postId) {
+        return lastCreatedAt(Aggregation.newAggregation(
+                stage("$match", new Document("postId", postId)),
+                stage("$sort", new Document("month", -1).append("number", -1)),
+                stage("$project", new Document("lastCreatedAt", new Document("$max", "$comments.createdAt"))),
+                stage("$match", new Document("lastCreatedAt", new Document("$ne", null))),
+                stage("$limit", 1)));
+    }
+
+    /**
+     * Creation time of the latest archived comment of a user, over the buckets found by the index on 'comments.userId'.
+     */
+    @Override
+    public Optional<LocalDateTime> findLastCreatedAtByUserId(Long userId) {
+        var match = new Document("comments.userId", userId);
+        return lastCreatedAt(Aggregation.newAggregation(
+                stage("$match", match),
+                stage("$unwind", "$comments"),
+                stage("$match", match),
+                stage("$group", new Document("_id", null).append("lastCreatedAt", new Document("$max", "$comments.createdAt")))));
+    }
+
+    private Optional<LocalDateTime> lastCreatedAt(Aggregation aggregation) {
+        return mongoTemplate.aggregate(aggregation, mongoTemplate.getCollectionName(CommentArchiveBucket.class), Document.class)
+                .getMappedResults().stream()
+                .map(document -> document.getDate("lastCreatedAt"))
+                .filter(Objects::nonNull)
+                .findFirst()
+                // The same conversion as Spring Data does for 'LocalDateTime' fields
+                .map(date -> LocalDateTime.ofInstant(date.toInstant(), ZoneId.systemDefault()));
+    }
+
+    /**
+     * Full-text search over archived comments, with the same keyset paging as 'CommentRepository.searchByContent'.
+     * The text index is on 'comments.content', so it finds buckets and scores them as a whole: the comments
+     * of a found bucket are then matched one by one, and every comment gets the score of its bucket.
+     * Negated terms are applied per comment, so a bucket is not dropped because one of its comments has them.
+     * <p>
+     * Limitation: comments are matched by case-insensitive substrings, without the stemming and the word
+     * boundaries of the text index. So the results can differ from the same search over hot comments:
+     * e.g. "comments" does not find an archived "comment", while "comment" finds "comments" and "commentary".
+     */
+    @Override
+    public List<CommentSearchHit> searchByContent(String query, Long postId, Long userId, Double afterScore, String afterId, int limit) {
+
+        var searchQuery = SearchQuery.of(query);
+        if (searchQuery.terms().isEmpty()) {
+            return List.of();
+        }
+
+        var bucketMatch = new Document("$text", new Document("$search", searchQuery.bucketSearch()));
+        if (postId != null) {
+            bucketMatch.append("postId", postId);
+        }
+        var commentMatch = new Document("$and", searchQuery.commentCriteria());
+        if (userId != null) {
+            bucketMatch.append("comments.userId", userId);
+            commentMatch.append("comments.userId", userId);
+        }
+
+        var stages = new ArrayList<AggregationOperation>();
+        stages.add(stage("$match", bucketMatch));
+        stages.add(stage("$addFields", new Document("score", new Document("$meta", "textScore"))));
+        stages.add(stage("$unwind", "$comments"));
+        stages.add(stage("$match", commentMatch));
+        stages.add(stage("$replaceRoot", new Document("newRoot",
+                new Document("$mergeObjects", List.of("$comments", new Document("score", "$score"))))));
+        if (afterScore != null && afterId != null) {
+            stages.add(stage("$match", afterSearchHit(afterScore, afterId)));
+        }
+        stages.add(stage("$sort", new Document("score", -1).append("_id", 1)));
+        stages.add(stage("$limit", limit));
+
+        var results = mongoTemplate.aggregate(Aggregation.newAggregation(stages),
+                mongoTemplate.getCollectionName(CommentArchiveBucket.class), Document.class);
+
+        return results.getMappedResults().stream()
+                .map(document -> new CommentSearchHit(
+                        mongoTemplate.getConverter().read(Comment.class, document),
+                        ((Number) document.get("score")).doubleValue()))
+                .toList();
+    }
+
+    /**
+     * A text search query split as '$text' reads it: terms, "phrases" (also terms), and -negated terms or phrases.
+     */
+    private record SearchQuery(List<String> terms, List<String> phrases, List<String> negated) {
+
+        private static final Pattern TOKEN = Pattern.compile("(-?)(?:\"([^\"]*)\"?|(\\S+))");
+
+        static SearchQuery of(String query) {
+            var terms = new ArrayList<String>();
+            var phrases = new ArrayList<String>();
+            var negated = new ArrayList<String>();
+            var matcher = TOKEN.matcher(query);
+            while (matcher.find()) {
+                var phrase = matcher.group(2) != null;
+                var token = (phrase ? matcher.group(2) : matcher.group(3)).strip();
+                if (token.isEmpty()) {
+                    continue;
+                }
+                if (!matcher.group(1).isEmpty()) {
+                    negated.add(token);
+                } else {
+                    terms.add(token);
+                    if (phrase) {
+                        phrases.add(token);
+                    }
+                }
+            }
+            return new SearchQuery(terms, phrases, negated);
+        }
+
+        // The query without its negated terms: they are applied per comment, not per bucket
+        String bucketSearch() {
+            return terms.stream()
+                    .map(term -> phrases.contains(term) ? "\"" + term + "\"" : term)
+                    .collect(Collectors.joining(" "));
+        }
+
+        // Any of the terms, all of the phrases, and none of the negated terms
+        List<Document> commentCriteria() {
+            var criteria = new ArrayList<Document>();
+            criteria.add(new Document("comments.content", containing(String.join("|", terms.stream().map(Pattern::quote).toList()))));
+            phrases.forEach(phrase -> criteria.add(new Document("comments.content", containing(Pattern.quote(phrase)))));
+            negated.forEach(term -> criteria.add(new Document("comments.content", new Document("$not", containing(Pattern.quote(term))))));
+            return criteria;
+        }
+
+        private static Pattern containing(String regex) {
+            return Pattern.compile(regex, Pattern.CASE_INSENSITIVE);
+        }
+    }
+
+    /**
+     * Adds comments to their (post, month) buckets with one bulk write, creating the buckets as needed:
+     * the last bucket of the month is filled up to {@link CommentArchiveBucket#MAX_COMMENTS}, then overflow buckets are added.
+     * Comments that are already in the archive are not added again, so archiving the same comments again is safe.
+     * A failed bucket write does not fail the others: its comments are logged and left out of the result.
+     *
+     * @return the given comments that are in the archive now
+     */
+    @Override
+    public List<Comment> archive(List<Comment> comments) {
+
+        if (comments.isEmpty()) {
+            return List.of();
+        }
+
+        var archivedIds = archivedIdsOf(comments);
+        var archived = new ArrayList<Comment>();
+        var commentsByMonth = new LinkedHashMap<String, List<Comment>>();
+        for (var comment : comments) {
+            if (archivedIds.contains(comment.getId())) {
+                archived.add(comment);
+            } else {
+                commentsByMonth.computeIfAbsent(monthKeyOf(comment), key -> new ArrayList<>()).add(comment);
+            }
+        }
+        if (commentsByMonth.isEmpty()) {
+            return archived;
+        }
+
+        var lastBuckets = lastBucketsOf(commentsByMonth.values().stream().map(monthComments -> monthComments.get(0)).toList());
+
+        var bulkOperations = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, CommentArchiveBucket.class);
+        var chunks = new ArrayList<List<Comment>>();
+        var chunkBucketIds = new ArrayList<String>();
+
+        for (var entry : commentsByMonth.entrySet()) {
+
+            var firstComment = entry.getValue().get(0);
+            var month = CommentArchiveBucket.monthOf(firstComment.getCreatedAt());
+
+            // A bucket without a count (written before the buckets were capped) is taken as full
+            var lastBucket = lastBuckets.get(entry.getKey());
+            int number = (lastBucket == null) ? 0 : lastBucket.getInteger("number", 0);
+            int count = (lastBucket == null) ? 0 : lastBucket.getInteger("count", CommentArchiveBucket.MAX_COMMENTS);
+
+            var monthComments = entry.getValue();
+            int from = 0;
+            while (from < monthComments.size()) {
+
+                if (count >= CommentArchiveBucket.MAX_COMMENTS) {
+                    number++;
+                    count = 0;
+                }
+                int to = Math.min(monthComments.size(), from + CommentArchiveBucket.MAX_COMMENTS - count);
+                var chunk = monthComments.subList(from, to);
+
+                var bucketId = CommentArchiveBucket.idOf(firstComment.getPostId(), month, number);
+                var update = new Update()
+                        .setOnInsert("postId", firstComment.getPostId())
+                        .setOnInsert("month", month)
+                        .setOnInsert("number", number)
+                        .inc("count", chunk.size());
+                update.push("comments").each(chunk.toArray());
+
+                // If the bucket has been filled meanwhile, the query does not match, and the upsert fails on the duplicate id
+                var query = Query.query(Criteria.where("id").is(bucketId)
+                        .and("count").lte(CommentArchiveBucket.MAX_COMMENTS - chunk.size()));
+                bulkOperations.upsert(query, update);
+                chunks.add(chunk);
+                chunkBucketIds.add(bucketId);
+
+                count += chunk.size();
+                from = to;
+            }
+        }
+
+        var failedChunks = new HashSet<Integer>();
+        try {
+            bulkOperations.execute();
+        } catch (BulkOperationException e) {
+            for (var error : e.getErrors()) {
+                failedChunks.add(error.getIndex());
+                log.error("Failed to archive comments {} into bucket '{}': {}",
+                        chunks.get(error.getIndex()).stream().map(Comment::getId).toList(), chunkBucketIds.get(error.getIndex()), error.getMessage());
+            }
+        }
+
+        for (int i = 0; i < chunks.size(); i++) {
+            if (!failedChunks.contains(i)) {
+                archived.addAll(chunks.get(i));
+            }
+        }
+        return archived;
+    }
+
+    private static String monthKeyOf(Comment comment) {
+        return CommentArchiveBucket.idOf(comment.getPostId(), CommentArchiveBucket.monthOf(comment.getCreatedAt()));
+    }
+
+    // Ids of the given comments that are in the archive already (by the index on 'comments._id')
+    private Set<String> archivedIdsOf(List<Comment> comments) {
+
+        var match = new Document("comments._id", new Document("$in", comments.stream().map(comment -> toMongoId(comment.getId())).toList()));
+        var aggregation = Aggregation.newAggregation(
+                stage("$match", match),
+                stage("$unwind", "$comments"),
+                stage("$match", match),
+                stage("$project", new Document("_id", "$comments._id")));
+
+        return mongoTemplate.aggregate(aggregation, mongoTemplate.getCollectionName(CommentArchiveBucket.class), Document.class)
+                .getMappedResults().stream()
+                .map(document -> document.get("_id").toString())
+                .collect(Collectors.toSet());
+    }
+
+    // The last (highest numbered) bucket of the month of each of the given comments, without the comments, by month key
+    private Map<String, Document> lastBucketsOf(List<Comment> commentsOfMonths) {
+
+        var months = commentsOfMonths.stream()
+                .map(comment -> Criteria.where("postId").is(comment.getPostId()).and("month").is(CommentArchiveBucket.monthOf(comment.getCreatedAt())))
+                .toArray(Criteria[]::new);
+        var query = Query.query(new Criteria().orOperator(months));
+        query.fields().include("postId", "month", "number", "count");
+
+        var lastBuckets = new HashMap<String, Document>();
+        for (var bucket : mongoTemplate.find(query, Document.class, mongoTemplate.getCollectionName(CommentArchiveBucket.class))) {
+            var key = CommentArchiveBucket.idOf(bucket.getLong("postId"), bucket.getString("month"));
+            lastBuckets.merge(key, bucket, (a, b) -> a.getInteger("number", 0) >= b.getInteger("number", 0) ? a : b);
+        }
+        return lastBuckets;
+    }
+
+    /**
+     * Removes the comment from its bucket atomically and returns it, so that only one of concurrent deletions of it gets the comment.
+     */
+    @Override
+    public Optional<Comment> findAndDeleteCommentById(String id) {
+
+        var query = Query.query(Criteria.where("comments._id").is(id));
+        query.fields().elemMatch("comments", Criteria.where("_id").is(id));
+        var update = new Update().pull("comments", new Document("_id", toMongoId(id)));
+
+        // The bucket is returned as it was before the update, with the removed comment only
+        return Optional.ofNullable(mongoTemplate.findAndModify(query, update, CommentArchiveBucket.class))
+                .flatMap(bucket -> bucket.getComments().stream().findFirst());
+    }
+
+    /**
+     * Removes comments from their buckets with one update. Ids that are not in the archive are ignored.
+     */
+    @Override
+    public void deleteCommentsById(Collection<String> ids) {
+
+        if (ids.isEmpty()) {
+            return;
+        }
+
+        // The update is not mapped through the Comment entity, so the ids are converted the way Spring Data stores them
+        var mongoIds = ids.stream().map(MongoQueries::toMongoId).toList();
+        var update = new Update().pull("comments", new Document("_id", new Document("$in", mongoIds)));
+        mongoTemplate.updateMulti(Query.query(Criteria.where("comments._id").in(ids)), update, CommentArchiveBucket.class);
+    }
+}
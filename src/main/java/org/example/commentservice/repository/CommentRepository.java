@@ -5,8 +5,17 @@ import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.data.repository.query.Param;
 
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
-public interface CommentRepository extends MongoRepository<Comment, String> {
+public interface CommentRepository extends MongoRepository<Comment, String>, CommentRepositoryCustom {
     List<Comment> findAllByPostId(@Param("postId") Long postId);
     List<Comment> findAllByUserId(@Param("userId") Long userId);
+
+    Optional<Comment> findFirstByPostIdOrderByCreatedAtDesc(@Param("postId") Long postId);
+    Optional<Comment> findFirstByUserIdOrderByCreatedAtDesc(@Param("userId") Long userId);
+
+    // Backed by an open Mongo cursor - the caller is responsible for closing the stream
+    Stream<Comment> streamAllByPostId(@Param("postId") Long postId);
+    Stream<Comment> streamAllByUserId(@Param("userId") Long userId);
 }
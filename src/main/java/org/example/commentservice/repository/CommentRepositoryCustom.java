@@ -0,0 +1,14 @@
+package org.example.commentservice.repository;
+
+import org.example.commentservice.model.Comment;
+import org.example.commentservice.model.CommentSearchHit;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+public interface CommentRepositoryCustom {
+    Optional<Comment> findAndDeleteById(String id);
+    List<Comment> findCreatedBefore(LocalDateTime createdBefore, Comment after, int limit);
+    List<CommentSearchHit> searchByContent(String query, Long postId, Long userId, Double afterScore, String afterId, int limit);
+}
@@ -0,0 +1,91 @@
+package org.example.commentservice.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.bson.Document;
+import org.example.commentservice.model.Comment;
+import org.example.commentservice.model.CommentSearchHit;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.example.commentservice.repository.MongoQueries.afterSearchHit;
+import static org.example.commentservice.repository.MongoQueries.stage;
+
+@RequiredArgsConstructor
+public class CommentRepositoryCustomImpl implements CommentRepositoryCustom {
+
+    private final MongoTemplate mongoTemplate;
+
+    /**
+     * Deletes the comment atomically and returns it, so that only one of concurrent deletions of it gets the comment.
+     */
+    @Override
+    public Optional<Comment> findAndDeleteById(String id) {
+        return Optional.ofNullable(mongoTemplate.findAndRemove(Query.query(Criteria.where("id").is(id)), Comment.class));
+    }
+
+    /**
+     * Comments created before 'createdBefore', oldest first, ties broken by id, backed by the '{createdAt: 1, _id: 1}' index.
+     * Pages are keyset-based: the next page starts right after 'after' - the last comment of the previous one (null for the first page),
+     * so comments left in place by the caller are not read again, and the last (empty) page costs no scan.
+     */
+    @Override
+    public List<Comment> findCreatedBefore(LocalDateTime createdBefore, Comment after, int limit) {
+
+        var criteria = Criteria.where("createdAt").lt(createdBefore);
+        if (after != null) {
+            criteria.orOperator(
+                    Criteria.where("createdAt").gt(after.getCreatedAt()),
+                    Criteria.where("createdAt").is(after.getCreatedAt()).and("id").gt(after.getId()));
+        }
+
+        var query = Query.query(criteria)
+                .with(Sort.by("createdAt", "id"))
+                .limit(limit);
+        return mongoTemplate.find(query, Comment.class);
+    }
+
+    /**
+     * Full-text search over the 'content' field (backed by the text index of the collection),
+     * ordered by relevance, ties broken by id. 'postId' and 'userId' are optional filters.
+     * Pages are keyset-based: the next page starts right after ('afterScore', 'afterId') - the last hit of the previous one,
+     * so neither deep pages nor comments inserted or deleted in between shift the results.
+     */
+    @Override
+    public List<CommentSearchHit> searchByContent(String query, Long postId, Long userId, Double afterScore, String afterId, int limit) {
+
+        var match = new Document("$text", new Document("$search", query));
+        if (postId != null) {
+            match.append("postId", postId);
+        }
+        if (userId != null) {
+            match.append("userId", userId);
+        }
+
+        var stages = new ArrayList<AggregationOperation>();
+        stages.add(stage("$match", match));
+        stages.add(stage("$addFields", new Document("score", new Document("$meta", "textScore"))));
+        if (afterScore != null && afterId != null) {
+            stages.add(stage("$match", afterSearchHit(afterScore, afterId)));
+        }
+        stages.add(stage("$sort", new Document("score", -1).append("_id", 1)));
+        stages.add(stage("$limit", limit));
+
+        var results = mongoTemplate.aggregate(Aggregation.newAggregation(stages),
+                mongoTemplate.getCollectionName(Comment.class), Document.class);
+
+        return results.getMappedResults().stream()
+                .map(document -> new CommentSearchHit(
+                        mongoTemplate.getConverter().read(Comment.class, document),
+                        ((Number) document.get("score")).doubleValue()))
+                .toList();
+    }
+}
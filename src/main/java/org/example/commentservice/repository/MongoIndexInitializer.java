@@ -0,0 +1,55 @@
+package org.example.commentservice.repository;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.example.commentservice.model.Comment;
+import org.example.commentservice.model.CommentArchiveBucket;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.TextIndexDefinition;
+import org.springframework.stereotype.Component;
+
+/**
+ * Creates the indexes the queries rely on.
+ * Index auto-creation of Spring Data is off, so the indexes are declared here, all in one place.
+ * Creating an index that already exists is a no-op, so only the first start (or a new index) costs an index build.
+ */
+@Component
+@ConditionalOnProperty(name = "comment-service.mongo.create-indexes", havingValue = "true", matchIfMissing = true)
+@RequiredArgsConstructor
+@Log4j2
+public class MongoIndexInitializer implements ApplicationRunner {
+
+    private final MongoTemplate mongoTemplate;
+
+    @Override
+    public void run(ApplicationArguments args) {
+
+        var comments = mongoTemplate.indexOps(Comment.class);
+        comments.ensureIndex(new TextIndexDefinition.TextIndexDefinitionBuilder()
+                .onField("content")
+                .named("content_text")
+                .build());
+        // Lookups by post / user, and the latest comment of a post / user (see 'CommentActivityService.onCommentDeleted')
+        comments.ensureIndex(new Index().on("postId", Sort.Direction.ASC).on("createdAt", Sort.Direction.DESC).named("postId_createdAt"));
+        comments.ensureIndex(new Index().on("userId", Sort.Direction.ASC).on("createdAt", Sort.Direction.DESC).named("userId_createdAt"));
+        // Batches of the archiver (see 'CommentRepository.findCreatedBefore')
+        comments.ensureIndex(new Index().on("createdAt", Sort.Direction.ASC).on("_id", Sort.Direction.ASC).named("createdAt_id"));
+
+        var archive = mongoTemplate.indexOps(CommentArchiveBucket.class);
+        // Lookups by post, and its latest buckets (see 'CommentArchiveRepository.findLastCreatedAtByPostId')
+        archive.ensureIndex(new Index().on("postId", Sort.Direction.ASC).on("month", Sort.Direction.DESC).named("postId_month"));
+        archive.ensureIndex(new Index().on("comments._id", Sort.Direction.ASC).named("comments_id"));
+        archive.ensureIndex(new Index().on("comments.userId", Sort.Direction.ASC).named("comments_userId"));
+        archive.ensureIndex(new TextIndexDefinition.TextIndexDefinitionBuilder()
+                .onField("comments.content")
+                .named("comments_content_text")
+                .build());
+
+        log.info("Mongo indexes are ensured");
+    }
+}
@@ -0,0 +1,63 @@
+package org.example.commentservice.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Lease-based lock of a job shared by all the instances of the service, one document per job in 'job_locks'.
+ * Only the holder of the lease runs the job; a lease that is not extended in time expires,
+ * so a crashed holder does not block the job forever.
+ */
+@Component
+@RequiredArgsConstructor
+public class MongoJobLock {
+
+    private static final String COLLECTION = "job_locks";
+
+    private final MongoTemplate mongoTemplate;
+
+    /**
+     * @return token of the acquired lease, or empty if the lease is held by someone else
+     */
+    public Optional<String> tryAcquire(String job, Duration lease) {
+
+        var token = UUID.randomUUID().toString();
+        var now = Instant.now();
+
+        // Matches only an expired lease; if the lease is held, the upsert tries to insert a second document and fails
+        var query = Query.query(Criteria.where("_id").is(job).and("lockedUntil").lt(Date.from(now)));
+        var update = new Update()
+                .set("owner", token)
+                .set("lockedUntil", Date.from(now.plus(lease)));
+        try {
+            mongoTemplate.upsert(query, update, COLLECTION);
+            return Optional.of(token);
+        } catch (DuplicateKeyException e) {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * @return false if the lease is lost (expired and taken over), the job must stop then
+     */
+    public boolean extend(String job, String token, Duration lease) {
+        var query = Query.query(Criteria.where("_id").is(job).and("owner").is(token));
+        var update = new Update().set("lockedUntil", Date.from(Instant.now().plus(lease)));
+        return mongoTemplate.updateFirst(query, update, COLLECTION).getMatchedCount() > 0;
+    }
+
+    public void release(String job, String token) {
+        mongoTemplate.remove(Query.query(Criteria.where("_id").is(job).and("owner").is(token)), COLLECTION);
+    }
+}
@@ -0,0 +1,35 @@
+package org.example.commentservice.repository;
+
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+
+import java.util.List;
+
+/**
+ * Building blocks of the raw queries and aggregations of the custom repositories.
+ */
+final class MongoQueries {
+
+    private MongoQueries() {}
+
+    // A pipeline stage as is, for the operators that the aggregation API of Spring Data does not cover
+    static AggregationOperation stage(String operator, Object value) {
+        return context -> new Document(operator, value);
+    }
+
+    // String ids are stored as ObjectId when they are valid ObjectIds, the same way Spring Data writes them
+    static Object toMongoId(String id) {
+        return ObjectId.isValid(id) ? new ObjectId(id) : id;
+    }
+
+    /**
+     * Keyset filter of search results ordered by 'score' descending, then by '_id':
+     * keeps what comes after ('afterScore', 'afterId') - the last hit of the previous page.
+     */
+    static Document afterSearchHit(double afterScore, String afterId) {
+        return new Document("$or", List.of(
+                new Document("score", new Document("$lt", afterScore)),
+                new Document("score", afterScore).append("_id", new Document("$gt", toMongoId(afterId)))));
+    }
+}
@@ -0,0 +1,97 @@
+package org.example.commentservice.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.example.commentservice.model.Comment;
+import org.example.commentservice.model.CommentActivity;
+import org.example.commentservice.repository.CommentActivityRepository;
+import org.example.commentservice.repository.CommentArchiveRepository;
+import org.example.commentservice.repository.CommentRepository;
+import org.example.commentservice.throttling.MongoLoadMonitor;
+import org.springframework.stereotype.Service;
+
+@Service
+@RequiredArgsConstructor
+@Log4j2
+public class CommentActivityService {
+
+    private final CommentActivityRepository commentActivityRepository;
+    private final CommentRepository commentRepository;
+    private final CommentArchiveRepository commentArchiveRepository;
+    private final MongoLoadMonitor mongoLoadMonitor;
+
+    public CommentActivity getPostActivity(Long postId) {
+        return commentActivityRepository.findById(CommentActivity.idOf(CommentActivity.Scope.POST, postId))
+                .orElse(null);
+    }
+
+    public CommentActivity getUserActivity(Long userId) {
+        return commentActivityRepository.findById(CommentActivity.idOf(CommentActivity.Scope.USER, userId))
+                .orElse(null);
+    }
+
+    public void onCommentCreated(Comment comment) {
+        commentActivityRepository.increment(CommentActivity.Scope.POST, comment.getPostId(), comment.getCreatedAt());
+        commentActivityRepository.increment(CommentActivity.Scope.USER, comment.getUserId(), comment.getCreatedAt());
+    }
+
+    /**
+     * Must be called after the comment is deleted,
+     * so that 'lastCommentedAt' is recalculated from the remaining comments.
+     */
+    public void onCommentDeleted(Comment comment) {
+
+        commentActivityRepository.decrement(CommentActivity.Scope.POST, comment.getPostId(), comment.getCreatedAt());
+        commentActivityRepository.decrement(CommentActivity.Scope.USER, comment.getUserId(), comment.getCreatedAt());
+
+        var postActivity = getPostActivity(comment.getPostId());
+        if (isLastComment(postActivity, comment)) {
+            // Hot comments are always newer than archived ones, so the archive is looked at only if there are none
+            var lastCommentedAt = commentRepository.findFirstByPostIdOrderByCreatedAtDesc(comment.getPostId())
+                    .map(Comment::getCreatedAt)
+                    .or(() -> commentArchiveRepository.findLastCreatedAtByPostId(comment.getPostId()))
+                    .orElse(null);
+            commentActivityRepository.updateLastCommentedAt(CommentActivity.Scope.POST, comment.getPostId(), lastCommentedAt);
+        }
+
+        var userActivity = getUserActivity(comment.getUserId());
+        if (isLastComment(userActivity, comment)) {
+            var lastCommentedAt = commentRepository.findFirstByUserIdOrderByCreatedAtDesc(comment.getUserId())
+                    .map(Comment::getCreatedAt)
+                    .or(() -> commentArchiveRepository.findLastCreatedAtByUserId(comment.getUserId()))
+                    .orElse(null);
+            commentActivityRepository.updateLastCommentedAt(CommentActivity.Scope.USER, comment.getUserId(), lastCommentedAt);
+        }
+    }
+
+    /**
+     * Recomputes all the activity documents from the comments (hot and archived), in place.
+     * Used to backfill the activity of comments that existed before the activity was tracked.
+     * Runs as maintenance, so its commands do not count towards the load used for load shedding.
+     *
+     * @return number of activity documents after the rebuild
+     */
+    public int rebuild() {
+        return mongoLoadMonitor.runAsMaintenance(() -> {
+
+            log.info("Rebuilding comment activity");
+
+            var skipped = commentActivityRepository.rebuildFromComments(CommentActivity.Scope.POST)
+                    + commentActivityRepository.rebuildFromComments(CommentActivity.Scope.USER);
+
+            var count = Math.toIntExact(commentActivityRepository.count());
+            log.info("Comment activity rebuilt: {} documents", count);
+            if (skipped > 0) {
+                log.warn("Activity of {} posts and users kept changing during the rebuild and was left as is - rebuild again later", skipped);
+            }
+            return count;
+        });
+    }
+
+    private static boolean isLastComment(CommentActivity activity, Comment comment) {
+        return activity != null
+                && activity.getLastCommentedAt() != null
+                && comment.getCreatedAt() != null
+                && !comment.getCreatedAt().isBefore(activity.getLastCommentedAt());
+    }
+}
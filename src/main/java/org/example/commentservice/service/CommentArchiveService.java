@@ -0,0 +1,164 @@
+package org.example.commentservice.service;
+
+import lombok.extern.log4j.Log4j2;
+import org.bson.Document;
+import org.example.commentservice.model.Comment;
+import org.example.commentservice.repository.CommentArchiveRepository;
+import org.example.commentservice.repository.CommentRepository;
+import org.example.commentservice.repository.MongoJobLock;
+import org.example.commentservice.throttling.MongoLoadMonitor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Moves comments older than 'comment-service.archive.max-age' from the 'comments' collection
+ * into monthly per-post buckets of the 'comments_archive' collection.
+ */
+@Service
+@Log4j2
+public class CommentArchiveService {
+
+    private final CommentRepository commentRepository;
+    private final CommentArchiveRepository commentArchiveRepository;
+    private final MongoTemplate mongoTemplate;
+    private final MongoCacheMonitor mongoCacheMonitor;
+    private final MongoLoadMonitor mongoLoadMonitor;
+    private final MongoJobLock mongoJobLock;
+
+    private final Duration maxAge;
+    private final int batchSize;
+    private final Duration lockLease;
+
+    private static final String ARCHIVE_JOB = "comment-archive";
+
+    public CommentArchiveService(CommentRepository commentRepository,
+                                 CommentArchiveRepository commentArchiveRepository,
+                                 MongoTemplate mongoTemplate,
+                                 MongoCacheMonitor mongoCacheMonitor,
+                                 MongoLoadMonitor mongoLoadMonitor,
+                                 MongoJobLock mongoJobLock,
+                                 @Value("${comment-service.archive.max-age:365d}") Duration maxAge,
+                                 @Value("${comment-service.archive.batch-size:1000}") int batchSize,
+                                 @Value("${comment-service.archive.lock-lease:10m}") Duration lockLease) {
+        this.commentRepository = commentRepository;
+        this.commentArchiveRepository = commentArchiveRepository;
+        this.mongoTemplate = mongoTemplate;
+        this.mongoCacheMonitor = mongoCacheMonitor;
+        this.mongoLoadMonitor = mongoLoadMonitor;
+        this.mongoJobLock = mongoJobLock;
+        this.maxAge = maxAge;
+        this.batchSize = batchSize;
+        this.lockLease = lockLease;
+    }
+
+    @Scheduled(cron = "${comment-service.archive.cron:0 0 3 * * *}")
+    public void archiveOldCommentsOnSchedule() {
+        archiveOldComments();
+    }
+
+    /**
+     * Archives comments batch by batch: a batch is first added to the archive and only then removed
+     * from the hot collection, so a failure in between leaves the comment in both places, not in neither.
+     * Every batch costs a fixed number of round trips, regardless of its size.
+     * Runs as maintenance, so its commands do not count towards the load used for load shedding.
+     * <p>
+     * Only one instance of the service archives at a time (see {@link MongoJobLock}): the archiver tells comments
+     * deleted by users from archived ones by their absence in the hot collection, which another archiver breaks.
+     *
+     * @return number of archived comments, 0 if another instance is archiving
+     */
+    public long archiveOldComments() {
+
+        var lockToken = mongoJobLock.tryAcquire(ARCHIVE_JOB, lockLease);
+        if (lockToken.isEmpty()) {
+            log.info("Archiving is skipped: another instance is archiving");
+            return 0;
+        }
+
+        try {
+            return mongoLoadMonitor.runAsMaintenance(() -> archive(lockToken.get()));
+        } finally {
+            mongoJobLock.release(ARCHIVE_JOB, lockToken.get());
+        }
+    }
+
+    private long archive(String lockToken) {
+
+        var createdBefore = LocalDateTime.now().minus(maxAge);
+        log.info("Archiving comments created before {}", createdBefore);
+
+        var documentsBefore = documentsCount();
+        var indexSizesBefore = indexSizes();
+        var cacheHitRatioBefore = mongoCacheMonitor.getHitRatio();
+
+        long archivedCount = 0;
+        Comment lastRead = null;
+
+        while (true) {
+
+            var batch = commentRepository.findCreatedBefore(createdBefore, lastRead, batchSize);
+            if (batch.isEmpty()) {
+                break;
+            }
+            lastRead = batch.get(batch.size() - 1);
+
+            // The lease may have expired during a long batch, and another instance may be archiving already
+            if (!mongoJobLock.extend(ARCHIVE_JOB, lockToken, lockLease)) {
+                log.warn("Archiving is stopped: the lock is lost, another instance took over");
+                break;
+            }
+
+            // Comments that failed to be archived (logged by the repository) stay in the hot collection until the next run
+            var archived = commentArchiveRepository.archive(batch);
+
+            // Comments deleted by users since the batch was read must not stay in the archive.
+            // A comment deleted after this check is removed from the archive by 'CommentService.deleteById' itself.
+            var ids = archived.stream().map(Comment::getId).toList();
+            var idsLeft = commentRepository.findAllById(ids).stream().map(Comment::getId).toList();
+            if (idsLeft.size() < ids.size()) {
+                var idsDeleted = new HashSet<>(ids);
+                idsDeleted.removeAll(idsLeft);
+                commentArchiveRepository.deleteCommentsById(idsDeleted);
+            }
+
+            commentRepository.deleteAllById(idsLeft);
+            archivedCount += idsLeft.size();
+        }
+
+        log.info("Comments archived: {}. Documents of '{}': {} -> {}, index sizes: {} -> {}",
+                archivedCount, mongoTemplate.getCollectionName(Comment.class),
+                documentsBefore, documentsCount(), indexSizesBefore, indexSizes());
+        log.info("WiredTiger cache hit ratio over the last sampling window before archiving: {}, now: {}",
+                cacheHitRatioBefore, mongoCacheMonitor.getHitRatio());
+
+        return archivedCount;
+    }
+
+    private long documentsCount() {
+        return mongoTemplate.estimatedCount(Comment.class);
+    }
+
+    /**
+     * Size in bytes of every index of the hot collection, from the 'collStats' metadata: one cheap command, no index scans.
+     * These are allocated sizes: WiredTiger reuses the space freed by deletions but does not give it back,
+     * so they stop growing rather than shrink; the documents count shows what archiving removed.
+     */
+    private Map<String, Object> indexSizes() {
+        var collectionName = mongoTemplate.getCollectionName(Comment.class);
+        try {
+            var stats = mongoTemplate.executeCommand(new Document("collStats", collectionName));
+            return new TreeMap<>(stats.get("indexSizes", new Document()));
+        } catch (RuntimeException e) {
+            log.warn("Failed to get index sizes of '{}': {}", collectionName, e.getMessage());
+            return Map.of();
+        }
+    }
+}
@@ -3,10 +3,17 @@ package org.example.commentservice.service;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
 import org.example.commentservice.model.Comment;
+import org.example.commentservice.model.CommentPage;
+import org.example.commentservice.model.CommentSearchHit;
+import org.example.commentservice.repository.CommentArchiveRepository;
 import org.example.commentservice.repository.CommentRepository;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
@@ -14,28 +21,125 @@ import java.util.List;
 public class CommentService {
 
     private final CommentRepository commentRepository;
+    private final CommentArchiveRepository commentArchiveRepository;
+    private final CommentActivityService commentActivityService;
+
+    private static final int SEARCH_PAGE_SIZE_DEFAULT = 20;
+    private static final int SEARCH_PAGE_SIZE_MAX = 100;
+    private static final String CURSOR_SEPARATOR = ":";
 
     public Comment getById(String id) {
         return commentRepository.findById(id)
+                .or(() -> commentArchiveRepository.findCommentById(id))
                 .orElse(null);
     }
 
     public List<Comment> getAllByPostId(Long postId) {
-        return commentRepository.findAllByPostId(postId);
+        var comments = new ArrayList<>(commentRepository.findAllByPostId(postId));
+        for (var bucket : commentArchiveRepository.findAllByPostId(postId)) {
+            comments.addAll(bucket.getComments());
+        }
+        return comments;
     }
 
     public List<Comment> getAllByUserId(Long userId) {
-        return commentRepository.findAllByUserId(userId);
+        var comments = new ArrayList<>(commentRepository.findAllByUserId(userId));
+        comments.addAll(commentArchiveRepository.findCommentsByUserId(userId));
+        return comments;
+    }
+
+    public Stream<Comment> streamAllByPostId(Long postId) {
+        // Closing the concatenated stream closes both cursors
+        return Stream.concat(
+                commentRepository.streamAllByPostId(postId),
+                commentArchiveRepository.streamAllByPostId(postId).flatMap(bucket -> bucket.getComments().stream()));
+    }
+
+    public Stream<Comment> streamAllByUserId(Long userId) {
+        // Closing the concatenated stream closes both cursors
+        return Stream.concat(
+                commentRepository.streamAllByUserId(userId),
+                commentArchiveRepository.streamCommentsByUserId(userId));
+    }
+
+    /**
+     * Searches comments by content, most relevant first: hot comments, then archived ones.
+     * 'after' is the 'endCursor' of the previous page, or null for the first page.
+     */
+    public CommentPage search(String query, Long postId, Long userId, Integer first, String after) {
+
+        int pageSize = (first == null || first <= 0) ? SEARCH_PAGE_SIZE_DEFAULT : Math.min(first, SEARCH_PAGE_SIZE_MAX);
+        var cursor = decodeCursor(after);
+
+        // One extra comment is requested to find out whether there is a next page
+        var hits = new ArrayList<CommentSearchHit>();
+        if (cursor == null || cursor.tier() == SearchTier.HOT) {
+            hits.addAll(commentRepository.searchByContent(query, postId, userId,
+                    cursor == null ? null : cursor.score(), cursor == null ? null : cursor.id(), pageSize + 1));
+        }
+        int hotHitsCount = hits.size();
+        if (hits.size() <= pageSize) {
+            var archiveCursor = (cursor != null && cursor.tier() == SearchTier.ARCHIVE) ? cursor : null;
+            hits.addAll(commentArchiveRepository.searchByContent(query, postId, userId,
+                    archiveCursor == null ? null : archiveCursor.score(), archiveCursor == null ? null : archiveCursor.id(), pageSize + 1 - hits.size()));
+        }
+
+        boolean hasNextPage = hits.size() > pageSize;
+        var page = hasNextPage ? hits.subList(0, pageSize) : hits;
+
+        var comments = page.stream().map(CommentSearchHit::getComment).toList();
+        var endCursor = page.isEmpty() ? after
+                : encodeCursor(page.size() <= hotHitsCount ? SearchTier.HOT : SearchTier.ARCHIVE, page.get(page.size() - 1));
+        return new CommentPage(comments, endCursor, hasNextPage);
+    }
+
+    // Hot comments are searched first, the archive is searched once they are exhausted
+    private enum SearchTier { HOT, ARCHIVE }
+
+    // Position of the last hit of a page: its tier, score and id
+    private record SearchCursor(SearchTier tier, double score, String id) {}
+
+    private static String encodeCursor(SearchTier tier, CommentSearchHit hit) {
+        var cursor = tier + CURSOR_SEPARATOR + hit.getScore() + CURSOR_SEPARATOR + hit.getComment().getId();
+        return Base64.getUrlEncoder().encodeToString(cursor.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static SearchCursor decodeCursor(String cursor) {
+
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+
+        try {
+            var decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            var parts = decoded.split(CURSOR_SEPARATOR, 3);
+            if (parts.length == 3 && !parts[2].isEmpty()) {
+                var tier = SearchTier.valueOf(parts[0]);
+                var score = Double.parseDouble(parts[1]);
+                if (Double.isFinite(score)) {
+                    return new SearchCursor(tier, score, parts[2]);
+                }
+            }
+        } catch (IllegalArgumentException ignored) {
+            // NumberFormatException and an unknown tier are IllegalArgumentExceptions too
+        }
+
+        throw new InvalidCursorException(cursor);
     }
 
     public Comment create(Comment comment) {
         var commentCreated = commentRepository.save(comment);
         log.info("Comment created: {}", commentCreated);
+        commentActivityService.onCommentCreated(commentCreated);
         return commentCreated;
     }
 
     public void deleteById(String id) {
         log.info("Attempt to delete a comment by id '{}'", id);
-        commentRepository.deleteById(id);
+        var commentDeleted = commentRepository.findAndDeleteById(id);
+        // Even if the comment was hot: the archiver may have just copied it to the archive (see 'CommentArchiveService')
+        var commentArchivedDeleted = commentArchiveRepository.findAndDeleteCommentById(id);
+        // Only the call that actually removed the comment counts it out - concurrent deletions of it count it once
+        commentDeleted.or(() -> commentArchivedDeleted).ifPresent(commentActivityService::onCommentDeleted);
     }
 }
@@ -0,0 +1,8 @@
+package org.example.commentservice.service;
+
+public class InvalidCursorException extends RuntimeException {
+
+    public InvalidCursorException(String cursor) {
+        super("Invalid cursor: '" + cursor + "'");
+    }
+}
@@ -0,0 +1,75 @@
+package org.example.commentservice.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.log4j.Log4j2;
+import org.bson.Document;
+import org.example.commentservice.throttling.MongoLoadMonitor;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Samples the WiredTiger cache counters of the Mongo server on a fixed schedule and computes the cache hit ratio
+ * of the last window between two samples: the share of page requests that did not have to read the page from disk.
+ * The counters grow since the start of the server, so only their deltas say anything about the current workload.
+ * Exposed as the 'comment.mongo.cache-hit-ratio' gauge (NaN until two samples are taken, or if nothing was requested).
+ */
+@Component
+@Log4j2
+public class MongoCacheMonitor {
+
+    private final MongoTemplate mongoTemplate;
+    private final MongoLoadMonitor mongoLoadMonitor;
+
+    private volatile CacheCounters lastCounters;
+    private volatile double hitRatio = Double.NaN;
+
+    private record CacheCounters(long requested, long readIntoCache) {}
+
+    public MongoCacheMonitor(MongoTemplate mongoTemplate, MongoLoadMonitor mongoLoadMonitor, MeterRegistry meterRegistry) {
+        this.mongoTemplate = mongoTemplate;
+        this.mongoLoadMonitor = mongoLoadMonitor;
+        Gauge.builder("comment.mongo.cache-hit-ratio", this, MongoCacheMonitor::getHitRatio)
+                .description("WiredTiger cache hit ratio over the last sampling window")
+                .register(meterRegistry);
+    }
+
+    public double getHitRatio() {
+        return hitRatio;
+    }
+
+    @Scheduled(cron = "${comment-service.mongo.cache-stats-cron:0 * * * * *}")
+    public void sample() {
+
+        var counters = mongoLoadMonitor.runAsMaintenance(this::readCounters);
+        if (counters == null) {
+            return;
+        }
+
+        var previous = lastCounters;
+        lastCounters = counters;
+        if (previous == null) {
+            return;
+        }
+
+        var requested = counters.requested() - previous.requested();
+        var readIntoCache = counters.readIntoCache() - previous.readIntoCache();
+        // Counters go back to zero when the server restarts
+        hitRatio = (requested > 0 && readIntoCache >= 0) ? 1 - (double) readIntoCache / requested : Double.NaN;
+    }
+
+    private CacheCounters readCounters() {
+        try {
+            var cache = mongoTemplate.executeCommand(new Document("serverStatus", 1))
+                    .get("wiredTiger", Document.class)
+                    .get("cache", Document.class);
+            return new CacheCounters(
+                    ((Number) cache.get("pages requested from the cache")).longValue(),
+                    ((Number) cache.get("pages read into cache")).longValue());
+        } catch (RuntimeException e) {
+            log.warn("Failed to get WiredTiger cache statistics: {}", e.getMessage());
+            return null;
+        }
+    }
+}
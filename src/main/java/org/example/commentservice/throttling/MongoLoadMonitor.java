@@ -0,0 +1,124 @@
+package org.example.commentservice.throttling;
+
+import com.mongodb.event.CommandFailedEvent;
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
+import com.mongodb.event.CommandSucceededEvent;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Tracks the number of in-flight Mongo commands and their average latency
+ * (exponentially weighted, so that it follows the recent load).
+ * The average also decays with the time elapsed since the last command, so it does not stay high
+ * once commands stop completing (e.g. because mutations are being shed).
+ * Commands of maintenance jobs (see {@link #runAsMaintenance}) are not tracked: they are slow by nature
+ * and would make the service shed user mutations.
+ * Registered as a command listener of the Mongo client, see {@link ThrottlingConfig}.
+ */
+@Component
+public class MongoLoadMonitor implements CommandListener {
+
+    private static final double LATENCY_SMOOTHING = 0.1; // weight of the latest command
+
+    private static final ThreadLocal<Boolean> MAINTENANCE = ThreadLocal.withInitial(() -> false);
+
+    private record Latency(double averageMillis, long updatedAtNanos) {}
+
+    private final double latencyDecayNanos;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicReference<Latency> latency = new AtomicReference<>(new Latency(0, System.nanoTime()));
+    private final Set<Integer> maintenanceRequestIds = ConcurrentHashMap.newKeySet();
+
+    public MongoLoadMonitor(MeterRegistry meterRegistry,
+                            @Value("${comment-service.load-shedding.latency-decay-millis:5000}") long latencyDecayMillis) {
+
+        this.latencyDecayNanos = TimeUnit.MILLISECONDS.toNanos(latencyDecayMillis);
+
+        Gauge.builder("comment.mongo.in-flight", this, MongoLoadMonitor::getInFlight)
+                .description("Mongo commands in flight")
+                .register(meterRegistry);
+        Gauge.builder("comment.mongo.latency", this, MongoLoadMonitor::getLatencyMillis)
+                .description("Moving average of Mongo command latency")
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Runs a maintenance job (archiving, rebuilds, statistics), so that the Mongo commands it issues
+     * on the current thread are left out of the load.
+     */
+    public <T> T runAsMaintenance(Supplier<T> job) {
+        if (MAINTENANCE.get()) {
+            return job.get();
+        }
+        MAINTENANCE.set(true);
+        try {
+            return job.get();
+        } finally {
+            MAINTENANCE.remove();
+        }
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public double getLatencyMillis() {
+        return latencyAt(latency.get(), System.nanoTime());
+    }
+
+    @Override
+    public void commandStarted(CommandStartedEvent event) {
+        onCommandStarted(event.getRequestId());
+    }
+
+    @Override
+    public void commandSucceeded(CommandSucceededEvent event) {
+        onCommandCompleted(event.getRequestId(), event.getElapsedTime(TimeUnit.MICROSECONDS) / 1000d);
+    }
+
+    @Override
+    public void commandFailed(CommandFailedEvent event) {
+        onCommandCompleted(event.getRequestId(), event.getElapsedTime(TimeUnit.MICROSECONDS) / 1000d);
+    }
+
+    void onCommandStarted(int requestId) {
+        if (MAINTENANCE.get()) {
+            maintenanceRequestIds.add(requestId);
+        } else {
+            inFlight.incrementAndGet();
+        }
+    }
+
+    // Completion is matched by the request id, as it is not necessarily reported on the thread that started the command
+    void onCommandCompleted(int requestId, double latencyMillis) {
+        if (!maintenanceRequestIds.remove(requestId)) {
+            inFlight.decrementAndGet();
+            recordLatency(latencyMillis);
+        }
+    }
+
+    private void recordLatency(double latencyMillis) {
+        latency.getAndUpdate(current -> {
+            var now = System.nanoTime();
+            var average = latencyAt(current, now);
+            return new Latency(average + LATENCY_SMOOTHING * (latencyMillis - average), now);
+        });
+    }
+
+    private double latencyAt(Latency latency, long nanos) {
+        var elapsed = Math.max(0, nanos - latency.updatedAtNanos());
+        return latency.averageMillis() * Math.exp(-elapsed / latencyDecayNanos);
+    }
+}
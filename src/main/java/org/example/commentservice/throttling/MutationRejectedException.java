@@ -0,0 +1,20 @@
+package org.example.commentservice.throttling;
+
+import graphql.ErrorClassification;
+import lombok.Getter;
+
+@Getter
+public class MutationRejectedException extends RuntimeException {
+
+    public enum Reason implements ErrorClassification {
+        THROTTLED, // a rate limit of the user or the post is exceeded
+        SHED       // the service is overloaded
+    }
+
+    private final Reason reason;
+
+    public MutationRejectedException(Reason reason, String message) {
+        super(message);
+        this.reason = reason;
+    }
+}
@@ -0,0 +1,124 @@
+package org.example.commentservice.throttling;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Protects the mutation path from abusive clients and overload:
+ * <ul>
+ *     <li>load shedding - low-priority mutations are rejected while Mongo is slow or busy;</li>
+ *     <li>rate limiting - token buckets per user and per post.</li>
+ * </ul>
+ * The outcome of every check is counted in the 'comment.mutations' metric (tag 'outcome': accepted, throttled, shed).
+ */
+@Component
+@Log4j2
+public class MutationThrottler {
+
+    public enum Priority { LOW, HIGH }
+
+    private final MongoLoadMonitor mongoLoadMonitor;
+
+    private final Map<Long, TokenBucket> userBuckets = new ConcurrentHashMap<>();
+    private final Map<Long, TokenBucket> postBuckets = new ConcurrentHashMap<>();
+
+    private final double userCapacity;
+    private final double userRefillPerSecond;
+    private final double postCapacity;
+    private final double postRefillPerSecond;
+    private final int maxInFlight;
+    private final double maxLatencyMillis;
+
+    private final Counter acceptedCounter;
+    private final Counter throttledCounter;
+    private final Counter shedCounter;
+
+    public MutationThrottler(MongoLoadMonitor mongoLoadMonitor,
+                             MeterRegistry meterRegistry,
+                             @Value("${comment-service.rate-limit.user.capacity:20}") double userCapacity,
+                             @Value("${comment-service.rate-limit.user.refill-per-second:1}") double userRefillPerSecond,
+                             @Value("${comment-service.rate-limit.post.capacity:100}") double postCapacity,
+                             @Value("${comment-service.rate-limit.post.refill-per-second:20}") double postRefillPerSecond,
+                             @Value("${comment-service.load-shedding.max-in-flight:200}") int maxInFlight,
+                             @Value("${comment-service.load-shedding.max-latency-millis:500}") double maxLatencyMillis) {
+
+        this.mongoLoadMonitor = mongoLoadMonitor;
+        this.userCapacity = userCapacity;
+        this.userRefillPerSecond = userRefillPerSecond;
+        this.postCapacity = postCapacity;
+        this.postRefillPerSecond = postRefillPerSecond;
+        this.maxInFlight = maxInFlight;
+        this.maxLatencyMillis = maxLatencyMillis;
+
+        this.acceptedCounter = mutationsCounter(meterRegistry, "accepted");
+        this.throttledCounter = mutationsCounter(meterRegistry, "throttled");
+        this.shedCounter = mutationsCounter(meterRegistry, "shed");
+    }
+
+    /**
+     * Admits a mutation or throws {@link MutationRejectedException}.
+     * 'userId' and 'postId' are optional - a missing one is not rate limited.
+     */
+    public void acquire(Priority priority, Long userId, Long postId) {
+
+        // Shedding goes first: it is the cheapest check and must not take tokens of rejected requests
+        if (priority == Priority.LOW && isOverloaded()) {
+            shedCounter.increment();
+            throw new MutationRejectedException(MutationRejectedException.Reason.SHED,
+                    "The service is overloaded, try again later");
+        }
+
+        var userBucket = (userId == null) ? null
+                : userBuckets.computeIfAbsent(userId, id -> new TokenBucket(userCapacity, userRefillPerSecond));
+        if (userBucket != null && !userBucket.tryConsume()) {
+            throttle("user", userId);
+        }
+
+        var postBucket = (postId == null) ? null
+                : postBuckets.computeIfAbsent(postId, id -> new TokenBucket(postCapacity, postRefillPerSecond));
+        if (postBucket != null && !postBucket.tryConsume()) {
+            if (userBucket != null) {
+                userBucket.giveBack();
+            }
+            throttle("post", postId);
+        }
+
+        acceptedCounter.increment();
+    }
+
+    /**
+     * Forgets buckets that have been refilled completely, as they are the same as new ones.
+     * A request racing with the removal may use the removed bucket, which costs at most one token.
+     */
+    @Scheduled(fixedDelayString = "${comment-service.rate-limit.cleanup-interval-millis:60000}")
+    public void removeIdleBuckets() {
+        userBuckets.values().removeIf(TokenBucket::isFull);
+        postBuckets.values().removeIf(TokenBucket::isFull);
+    }
+
+    private boolean isOverloaded() {
+        return mongoLoadMonitor.getInFlight() >= maxInFlight
+                || mongoLoadMonitor.getLatencyMillis() >= maxLatencyMillis;
+    }
+
+    private void throttle(String keyName, Long key) {
+        throttledCounter.increment();
+        log.warn("Mutation throttled: rate limit of {} '{}' exceeded", keyName, key);
+        throw new MutationRejectedException(MutationRejectedException.Reason.THROTTLED,
+                "Too many comments for " + keyName + " '" + key + "', try again later");
+    }
+
+    private static Counter mutationsCounter(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("comment.mutations")
+                .description("Mutations by the outcome of rate limiting and load shedding")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+}
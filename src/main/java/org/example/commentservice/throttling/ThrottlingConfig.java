@@ -0,0 +1,14 @@
+package org.example.commentservice.throttling;
+
+import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class ThrottlingConfig {
+
+    @Bean
+    public MongoClientSettingsBuilderCustomizer mongoLoadMonitorCustomizer(MongoLoadMonitor mongoLoadMonitor) {
+        return builder -> builder.addCommandListener(mongoLoadMonitor);
+    }
+}
@@ -0,0 +1,59 @@
+package org.example.commentservice.throttling;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Lock-free token bucket: holds up to 'capacity' tokens and refills at 'refillPerSecond' tokens per second.
+ * The state is replaced as a whole with compare-and-set, so concurrent callers never block each other.
+ */
+class TokenBucket {
+
+    private record State(double tokens, long updatedAtNanos) {}
+
+    private final double capacity;
+    private final double refillPerNano;
+    private final AtomicReference<State> state;
+
+    TokenBucket(double capacity, double refillPerSecond) {
+        this.capacity = capacity;
+        this.refillPerNano = refillPerSecond / 1_000_000_000d;
+        this.state = new AtomicReference<>(new State(capacity, System.nanoTime()));
+    }
+
+    boolean tryConsume() {
+        while (true) {
+            var current = state.get();
+            var now = System.nanoTime();
+            var tokens = tokensAt(current, now);
+            if (tokens < 1) {
+                return false;
+            }
+            if (state.compareAndSet(current, new State(tokens - 1, now))) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Returns a token taken by {@link #tryConsume()} when the request is rejected for another reason.
+     */
+    void giveBack() {
+        while (true) {
+            var current = state.get();
+            var now = System.nanoTime();
+            var tokens = Math.min(capacity, tokensAt(current, now) + 1);
+            if (state.compareAndSet(current, new State(tokens, now))) {
+                return;
+            }
+        }
+    }
+
+    boolean isFull() {
+        return tokensAt(state.get(), System.nanoTime()) >= capacity;
+    }
+
+    private double tokensAt(State state, long nanos) {
+        var elapsed = Math.max(0, nanos - state.updatedAtNanos());
+        return Math.min(capacity, state.tokens() + elapsed * refillPerNano);
+    }
+}
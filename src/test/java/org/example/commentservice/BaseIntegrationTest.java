@@ -25,6 +25,7 @@ public class BaseIntegrationTest {
         propertyRegistry.add("spring.data.mongodb.host", mongoDB::getHost);
         propertyRegistry.add("spring.data.mongodb.port", () -> port);
         propertyRegistry.add("spring.data.mongodb.database", () -> "testdb-comment-service-blog-platform");
+        propertyRegistry.add("comment-service.mongo.create-indexes", () -> "true");
     }
 
     private static int retrievePortFromConnectionString(@Nonnull String connectionString) {
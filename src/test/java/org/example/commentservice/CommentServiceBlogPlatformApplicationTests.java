@@ -2,8 +2,10 @@ package org.example.commentservice;
 
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
 
 @SpringBootTest
+@DirtiesContext // the Mongo container is restarted for every test class, so the context must not be reused
 class CommentServiceBlogPlatformApplicationTests extends BaseIntegrationTest {
 
     @Test
@@ -0,0 +1,199 @@
+package org.example.commentservice.controller;
+
+import org.example.commentservice.model.CommentActivity;
+import org.example.commentservice.model.DailyCommentCount;
+import org.example.commentservice.service.CommentActivityService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.ApplicationContext;
+import org.springframework.graphql.test.tester.HttpGraphQlTester;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.Mockito.*;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class CommentActivityControllerTest {
+
+    private HttpGraphQlTester graphQlTester;
+
+    @MockBean
+    private CommentActivityService commentActivityService;
+
+    private CommentActivity postActivity;
+    private CommentActivity userActivity;
+
+    @BeforeEach
+    void setUp(@Autowired ApplicationContext applicationContext) {
+
+        if (graphQlTester == null) {
+            var webTestClient = WebTestClient.bindToApplicationContext(applicationContext)
+                    .configureClient()
+                    .baseUrl("/graphql")
+                    .build();
+            graphQlTester = HttpGraphQlTester.create(webTestClient);
+        }
+
+        var lastCommentedAt = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+
+        postActivity = new CommentActivity(CommentActivity.Scope.POST, 1L);
+        postActivity.setCommentsCount(3);
+        postActivity.setLastCommentedAt(lastCommentedAt);
+        postActivity.setDailyCounts(Map.of("2024-02-05", 2L, "2024-02-04", 1L, "2024-02-03", 0L));
+
+        userActivity = new CommentActivity(CommentActivity.Scope.USER, 2L);
+        userActivity.setCommentsCount(1);
+        userActivity.setLastCommentedAt(lastCommentedAt);
+        userActivity.setDailyCounts(Map.of("2024-02-05", 1L));
+
+        // Mocking
+        when(commentActivityService.getPostActivity(-1L)).thenReturn(null);
+        when(commentActivityService.getUserActivity(-1L)).thenReturn(null);
+        when(commentActivityService.getPostActivity(postActivity.getOwnerId())).thenReturn(postActivity);
+        when(commentActivityService.getUserActivity(userActivity.getOwnerId())).thenReturn(userActivity);
+        when(commentActivityService.rebuild()).thenReturn(2);
+    }
+
+    @Test
+    void testGetPostActivity() {
+
+        String query = """
+                {
+                  getPostActivity(postId: %d) {
+                    ownerId
+                    commentsCount
+                    lastCommentedAt
+                    dailyCounts {
+                      day
+                      count
+                    }
+                  }
+                }
+                """;
+
+        query = String.format(query, postActivity.getOwnerId());
+
+        var response = graphQlTester.document(query).execute();
+
+        response.path("data.getPostActivity.ownerId").entity(Long.class).isEqualTo(postActivity.getOwnerId());
+        response.path("data.getPostActivity.commentsCount").entity(Long.class).isEqualTo(postActivity.getCommentsCount());
+        response.path("data.getPostActivity.lastCommentedAt").entity(LocalDateTime.class).isEqualTo(postActivity.getLastCommentedAt());
+
+        // Sorted by day, without empty days
+        var dailyCounts = response.path("data.getPostActivity.dailyCounts").entityList(DailyCommentCount.class).get();
+        assertEquals(List.of(new DailyCommentCount("2024-02-04", 1L), new DailyCommentCount("2024-02-05", 2L)), dailyCounts);
+
+        verify(commentActivityService, times(1)).getPostActivity(postActivity.getOwnerId());
+    }
+
+    @Test
+    void testGetPostActivity_NotFound() {
+
+        var postId = -1L;
+
+        String query = """
+                {
+                  getPostActivity(postId: %d) {
+                    ownerId
+                    commentsCount
+                  }
+                }
+                """;
+
+        query = String.format(query, postId);
+
+        graphQlTester.document(query)
+                .execute()
+                .path("data.getPostActivity")
+                .valueIsNull();
+
+        verify(commentActivityService, times(1)).getPostActivity(postId);
+    }
+
+    @Test
+    void testGetUserActivity() {
+
+        String query = """
+                {
+                  getUserActivity(userId: %d) {
+                    ownerId
+                    commentsCount
+                    lastCommentedAt
+                    dailyCounts {
+                      day
+                      count
+                    }
+                  }
+                }
+                """;
+
+        query = String.format(query, userActivity.getOwnerId());
+
+        var response = graphQlTester.document(query).execute();
+
+        response.path("data.getUserActivity.ownerId").entity(Long.class).isEqualTo(userActivity.getOwnerId());
+        response.path("data.getUserActivity.commentsCount").entity(Long.class).isEqualTo(userActivity.getCommentsCount());
+        response.path("data.getUserActivity.lastCommentedAt").entity(LocalDateTime.class).isEqualTo(userActivity.getLastCommentedAt());
+        response.path("data.getUserActivity.dailyCounts").entityList(DailyCommentCount.class)
+                .containsExactly(new DailyCommentCount("2024-02-05", 1L));
+
+        verify(commentActivityService, times(1)).getUserActivity(userActivity.getOwnerId());
+    }
+
+    @Test
+    void testGetUserActivity_NotFound() {
+
+        var userId = -1L;
+
+        String query = """
+                {
+                  getUserActivity(userId: %d) {
+                    ownerId
+                    commentsCount
+                  }
+                }
+                """;
+
+        query = String.format(query, userId);
+
+        graphQlTester.document(query)
+                .execute()
+                .path("data.getUserActivity")
+                .valueIsNull();
+
+        verify(commentActivityService, times(1)).getUserActivity(userId);
+    }
+
+    @Test
+    void testRebuildActivity_NotInPublicSchema() {
+
+        String query = """
+                mutation {
+                  rebuildActivity
+                }
+                """;
+
+        graphQlTester.document(query)
+                .execute()
+                .errors()
+                .satisfy(errors -> assertFalse(errors.isEmpty()));
+
+        verify(commentActivityService, never()).rebuild();
+    }
+
+    @Test
+    void testRebuildActivity_AdminEndpoint(@Autowired CommentActivityEndpoint commentActivityEndpoint) {
+        var result = commentActivityEndpoint.rebuild();
+        assertEquals(2, result.intValue());
+        verify(commentActivityService, times(1)).rebuild();
+    }
+}
@@ -1,12 +1,17 @@
 package org.example.commentservice.controller;
 
 import org.example.commentservice.model.Comment;
+import org.example.commentservice.model.CommentPage;
 import org.example.commentservice.service.CommentService;
+import org.example.commentservice.service.InvalidCursorException;
+import org.example.commentservice.throttling.MutationRejectedException;
+import org.example.commentservice.throttling.MutationThrottler;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.mock.mockito.SpyBean;
 import org.springframework.context.ApplicationContext;
 import org.springframework.graphql.test.tester.HttpGraphQlTester;
 import org.springframework.test.web.reactive.server.WebTestClient;
@@ -19,8 +24,7 @@ import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 
-import static org.junit.jupiter.api.Assertions.assertEquals;
-import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
 
@@ -32,6 +36,9 @@ class CommentControllerTest {
     @MockBean
     private CommentService commentService;
 
+    @SpyBean
+    private MutationThrottler mutationThrottler;
+
     private List<Comment> commentsInDB;
     
     @BeforeEach
@@ -269,6 +276,71 @@ class CommentControllerTest {
         verify(commentService, times(1)).getAllByUserId(userId);
     }
 
+    @Test
+    void testSearchComments() {
+
+        var postId = 1L;
+        var commentsFound = commentsInDB.stream().filter(c -> c.getPostId().equals(postId)).toList();
+        var page = new CommentPage(commentsFound, "b2Zmc2V0OjI=", true);
+
+        when(commentService.search("comment", postId, null, 2, null)).thenReturn(page);
+
+        String query = """
+                {
+                  searchComments(query: "comment", postId: %d, first: 2) {
+                    comments {
+                      id
+                      postId
+                      userId
+                      content
+                      createdAt
+                    }
+                    endCursor
+                    hasNextPage
+                  }
+                }
+                """;
+
+        query = String.format(query, postId);
+
+        var result = graphQlTester.document(query)
+                .execute()
+                .path("data.searchComments")
+                .hasValue()
+                .entity(CommentPage.class)
+                .get();
+
+        assertEquals(commentsFound, result.getComments());
+        assertEquals(page.getEndCursor(), result.getEndCursor());
+        assertTrue(result.isHasNextPage());
+
+        verify(commentService, times(1)).search("comment", postId, null, 2, null);
+    }
+
+    @Test
+    void testSearchComments_InvalidCursor() {
+
+        when(commentService.search("comment", null, null, null, "invalid")).thenThrow(new InvalidCursorException("invalid"));
+
+        String query = """
+                {
+                  searchComments(query: "comment", after: "invalid") {
+                    endCursor
+                  }
+                }
+                """;
+
+        graphQlTester.document(query)
+                .execute()
+                .errors()
+                .expect(error -> "BAD_REQUEST".equals(error.getExtensions().get("classification")))
+                .verify()
+                .path("data.searchComments")
+                .valueIsNull();
+
+        verify(commentService, times(1)).search("comment", null, null, null, "invalid");
+    }
+
     @Test
     void testCreate() {
 
@@ -339,6 +411,37 @@ class CommentControllerTest {
         verify(commentService, times(1)).create(any(Comment.class));
     }
 
+    @Test
+    void testCreate_Throttled() {
+
+        var userId = 2L;
+        var postId = 4L;
+
+        doThrow(new MutationRejectedException(MutationRejectedException.Reason.THROTTLED, "Too many comments"))
+                .when(mutationThrottler).acquire(MutationThrottler.Priority.LOW, userId, postId);
+
+        String query = """
+                mutation {
+                  create(postId: %d, userId: %d, content: "%s") {
+                    id
+                  }
+                }
+                """;
+
+        query = String.format(query, postId, userId, "new comment");
+
+        graphQlTester.document(query)
+                .execute()
+                .errors()
+                .expect(error -> "THROTTLED".equals(error.getExtensions().get("classification")))
+                .verify()
+                .path("data.create")
+                .valueIsNull();
+
+        verify(mutationThrottler, times(1)).acquire(MutationThrottler.Priority.LOW, userId, postId);
+        verify(commentService, never()).create(any(Comment.class));
+    }
+
     @Test
     void testDeleteById() {
 
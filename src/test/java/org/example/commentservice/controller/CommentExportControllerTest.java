@@ -0,0 +1,155 @@
+package org.example.commentservice.controller;
+
+import org.example.commentservice.model.Comment;
+import org.example.commentservice.service.CommentService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.ApplicationContext;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.mockito.Mockito.*;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class CommentExportControllerTest {
+
+    private WebTestClient webTestClient;
+
+    @MockBean
+    private CommentService commentService;
+
+    private List<Comment> commentsInDB;
+
+    @BeforeEach
+    void setUp(@Autowired ApplicationContext applicationContext) {
+
+        if (webTestClient == null) {
+            webTestClient = WebTestClient.bindToApplicationContext(applicationContext)
+                    .configureClient()
+                    .baseUrl("/export/comments")
+                    .build();
+        }
+
+        commentsInDB = new ArrayList<>(List.of(
+                new Comment("1", 2L, 3L, "first comment", LocalDateTime.now().minusDays(1).truncatedTo(ChronoUnit.SECONDS)),
+                new Comment("2", 1L, 1L, "second comment", LocalDateTime.now().minusWeeks(1).truncatedTo(ChronoUnit.SECONDS)),
+                new Comment("3", 1L, 2L, "third comment", LocalDateTime.now().minusYears(1).truncatedTo(ChronoUnit.SECONDS)),
+                new Comment("4", 3L, 4L, "fourth comment", LocalDateTime.now().minusDays(2).truncatedTo(ChronoUnit.SECONDS)),
+                new Comment("5", 2L, 3L, "fifth comment", LocalDateTime.now().minusDays(5).truncatedTo(ChronoUnit.SECONDS))
+        ));
+
+        // Mocking (a new stream for every call, as a stream can be consumed only once)
+        when(commentService.streamAllByPostId(-1L)).thenAnswer(invocation -> Stream.empty());
+        when(commentService.streamAllByUserId(-1L)).thenAnswer(invocation -> Stream.empty());
+
+        var postIds = commentsInDB.stream().map(Comment::getPostId).distinct().toList();
+        for (var postId : postIds) {
+            var commentsByPostId = commentsInDB.stream().filter(c -> c.getPostId().equals(postId)).toList();
+            when(commentService.streamAllByPostId(postId)).thenAnswer(invocation -> commentsByPostId.stream());
+        }
+
+        var userIds = commentsInDB.stream().map(Comment::getUserId).distinct().toList();
+        for (var userId : userIds) {
+            var commentsByUserId = commentsInDB.stream().filter(c -> c.getUserId().equals(userId)).toList();
+            when(commentService.streamAllByUserId(userId)).thenAnswer(invocation -> commentsByUserId.stream());
+        }
+    }
+
+    @Test
+    void testExportAllByPostId() {
+
+        var postIds = commentsInDB.stream().map(Comment::getPostId).distinct().toList();
+
+        for (var postId : postIds) {
+
+            var result = webTestClient.get()
+                    .uri("/post/{postId}", postId)
+                    .accept(MediaType.APPLICATION_NDJSON)
+                    .exchange()
+                    .expectStatus().isOk()
+                    .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                    .expectBodyList(Comment.class)
+                    .returnResult()
+                    .getResponseBody();
+
+            assertNotNull(result);
+
+            var resultExpected = commentsInDB.stream().filter(c -> c.getPostId().equals(postId)).toList();
+            assertEquals(new HashSet<>(resultExpected), new HashSet<>(result));
+            verify(commentService, times(1)).streamAllByPostId(postId);
+        }
+
+        verify(commentService, times(postIds.size())).streamAllByPostId(anyLong());
+    }
+
+    @Test
+    void testExportAllByPostId_NotFound() {
+
+        var postId = -1L;
+
+        webTestClient.get()
+                .uri("/post/{postId}", postId)
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(Comment.class)
+                .hasSize(0);
+
+        verify(commentService, times(1)).streamAllByPostId(postId);
+    }
+
+    @Test
+    void testExportAllByUserId() {
+
+        var userIds = commentsInDB.stream().map(Comment::getUserId).distinct().toList();
+
+        for (var userId : userIds) {
+
+            var result = webTestClient.get()
+                    .uri("/user/{userId}", userId)
+                    .accept(MediaType.APPLICATION_NDJSON)
+                    .exchange()
+                    .expectStatus().isOk()
+                    .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                    .expectBodyList(Comment.class)
+                    .returnResult()
+                    .getResponseBody();
+
+            assertNotNull(result);
+
+            var resultExpected = commentsInDB.stream().filter(c -> c.getUserId().equals(userId)).toList();
+            assertEquals(new HashSet<>(resultExpected), new HashSet<>(result));
+            verify(commentService, times(1)).streamAllByUserId(userId);
+        }
+
+        verify(commentService, times(userIds.size())).streamAllByUserId(anyLong());
+    }
+
+    @Test
+    void testExportAllByUserId_NotFound() {
+
+        var userId = -1L;
+
+        webTestClient.get()
+                .uri("/user/{userId}", userId)
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(Comment.class)
+                .hasSize(0);
+
+        verify(commentService, times(1)).streamAllByUserId(userId);
+    }
+}
@@ -0,0 +1,162 @@
+package org.example.commentservice.repository;
+
+import org.example.commentservice.BaseIntegrationTest;
+import org.example.commentservice.model.Comment;
+import org.example.commentservice.model.CommentActivity;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.test.annotation.DirtiesContext;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataMongoTest
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class CommentActivityRepositoryTest extends BaseIntegrationTest {
+
+    @Autowired
+    private CommentActivityRepository commentActivityRepository;
+
+    @Autowired
+    private CommentRepository commentRepository;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    private List<Comment> commentsInDB;
+
+    private boolean clearCollectionsAfterEachTest = false;
+
+    @BeforeEach
+    void setUp() {
+
+        clearCollectionsAfterEachTest = false;
+
+        assertTrue(commentRepository.findAll().isEmpty(), "The test database collection must be empty. Maybe this is not a test base???");
+        assertTrue(commentActivityRepository.findAll().isEmpty(), "The test database collection must be empty. Maybe this is not a test base???");
+
+        var now = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+
+        commentsInDB = new ArrayList<>(List.of(
+                commentRepository.save(new Comment(null, 1L, 1L, "first comment", now.minusDays(1))),
+                commentRepository.save(new Comment(null, 1L, 2L, "second comment", now.minusDays(1).minusHours(1))),
+                commentRepository.save(new Comment(null, 1L, 1L, "third comment", now.minusDays(3))),
+                commentRepository.save(new Comment(null, 2L, 1L, "fourth comment", now))
+        ));
+
+        clearCollectionsAfterEachTest = true;
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (clearCollectionsAfterEachTest) {
+            commentRepository.deleteAll();
+            commentActivityRepository.deleteAll();
+        }
+    }
+
+    @Test
+    void increment() {
+
+        var createdAt = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+
+        commentActivityRepository.increment(CommentActivity.Scope.POST, 1L, createdAt.minusDays(1));
+        commentActivityRepository.increment(CommentActivity.Scope.POST, 1L, createdAt);
+
+        var result = commentActivityRepository.findById(CommentActivity.idOf(CommentActivity.Scope.POST, 1L)).orElseThrow();
+        assertEquals(CommentActivity.Scope.POST, result.getScope());
+        assertEquals(1L, result.getOwnerId());
+        assertEquals(2, result.getCommentsCount());
+        assertEquals(createdAt, result.getLastCommentedAt());
+        assertEquals(Map.of(CommentActivity.dayOf(createdAt.minusDays(1)), 1L, CommentActivity.dayOf(createdAt), 1L),
+                result.getDailyCounts());
+    }
+
+    @Test
+    void decrement() {
+
+        var createdAt = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+
+        commentActivityRepository.increment(CommentActivity.Scope.USER, 1L, createdAt);
+        commentActivityRepository.increment(CommentActivity.Scope.USER, 1L, createdAt);
+        commentActivityRepository.decrement(CommentActivity.Scope.USER, 1L, createdAt);
+
+        var result = commentActivityRepository.findById(CommentActivity.idOf(CommentActivity.Scope.USER, 1L)).orElseThrow();
+        assertEquals(1, result.getCommentsCount());
+        assertEquals(Map.of(CommentActivity.dayOf(createdAt), 1L), result.getDailyCounts());
+    }
+
+    @Test
+    void decrement_NotFound() {
+        commentActivityRepository.decrement(CommentActivity.Scope.USER, -1L, LocalDateTime.now());
+        assertTrue(commentActivityRepository.findAll().isEmpty());
+    }
+
+    @Test
+    void rebuildFromComments() {
+
+        for (var scope : CommentActivity.Scope.values()) {
+
+            for (var comment : commentsInDB) {
+                var ownerId = (scope == CommentActivity.Scope.POST) ? comment.getPostId() : comment.getUserId();
+                commentActivityRepository.increment(scope, ownerId, comment.getCreatedAt());
+            }
+
+            var resultExpected = activitiesOf(scope);
+
+            // Wrong counts are fixed, and the activity of an owner without comments is removed
+            var wrongActivity = new CommentActivity(scope, resultExpected.get(0).getOwnerId());
+            wrongActivity.setCommentsCount(100);
+            commentActivityRepository.save(wrongActivity);
+            commentActivityRepository.save(new CommentActivity(scope, -1L));
+
+            assertEquals(0, commentActivityRepository.rebuildFromComments(scope));
+
+            var result = activitiesOf(scope);
+            assertEquals(resultExpected.size(), result.size());
+            assertTrue(result.containsAll(resultExpected));
+        }
+    }
+
+    @Test
+    void rebuildFromComments_KeptChanging() {
+
+        for (var comment : commentsInDB) {
+            commentActivityRepository.increment(CommentActivity.Scope.POST, comment.getPostId(), comment.getCreatedAt());
+        }
+
+        // Looks updated after every pass started, as a post commented on all the time does
+        var busyActivity = new CommentActivity(CommentActivity.Scope.POST, commentsInDB.get(0).getPostId());
+        busyActivity.setCommentsCount(100);
+        commentActivityRepository.save(busyActivity);
+        mongoTemplate.updateFirst(Query.query(Criteria.where("id").is(busyActivity.getId())),
+                new Update().set("updatedAt", Date.from(Instant.now().plus(1, ChronoUnit.DAYS))),
+                CommentActivity.class);
+
+        assertEquals(1, commentActivityRepository.rebuildFromComments(CommentActivity.Scope.POST));
+
+        // Left as is, the other posts are rebuilt
+        assertEquals(100, commentActivityRepository.findById(busyActivity.getId()).orElseThrow().getCommentsCount());
+        assertEquals(commentsInDB.stream().map(Comment::getPostId).distinct().count(), activitiesOf(CommentActivity.Scope.POST).size());
+    }
+
+    private List<CommentActivity> activitiesOf(CommentActivity.Scope scope) {
+        return commentActivityRepository.findAll().stream()
+                .filter(activity -> activity.getScope() == scope)
+                .toList();
+    }
+}
@@ -0,0 +1,264 @@
+package org.example.commentservice.repository;
+
+import org.example.commentservice.BaseIntegrationTest;
+import org.example.commentservice.model.Comment;
+import org.example.commentservice.model.CommentArchiveBucket;
+import org.example.commentservice.model.CommentSearchHit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.annotation.DirtiesContext;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataMongoTest
+@Import(MongoIndexInitializer.class)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class CommentArchiveRepositoryTest extends BaseIntegrationTest {
+
+    @Autowired
+    private CommentArchiveRepository commentArchiveRepository;
+
+    private List<Comment> commentsInArchive;
+
+    private boolean clearCollectionAfterEachTest = false;
+
+    @BeforeEach
+    void setUp() {
+
+        clearCollectionAfterEachTest = false;
+
+        assertTrue(commentArchiveRepository.findAll().isEmpty(), "The test database collection must be empty. Maybe this is not a test base???");
+
+        var createdAt = LocalDateTime.of(2022, 3, 15, 12, 0).truncatedTo(ChronoUnit.SECONDS);
+
+        commentsInArchive = List.of(
+                new Comment("1", 2L, 3L, "first comment", createdAt),
+                new Comment("2", 1L, 1L, "second comment", createdAt.minusDays(1)),
+                new Comment("3", 1L, 2L, "third comment", createdAt.minusMonths(1)),
+                new Comment("4", 3L, 4L, "fourth comment", createdAt.minusMonths(2)),
+                new Comment("5", 2L, 3L, "fifth comment", createdAt.minusDays(5))
+        );
+
+        commentArchiveRepository.archive(commentsInArchive);
+
+        clearCollectionAfterEachTest = true;
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (clearCollectionAfterEachTest) {
+            commentArchiveRepository.deleteAll();
+        }
+    }
+
+    @Test
+    void archive() {
+
+        // One bucket per post per month
+        var bucketIdsExpected = commentsInArchive.stream()
+                .map(c -> CommentArchiveBucket.idOf(c.getPostId(), CommentArchiveBucket.monthOf(c.getCreatedAt())))
+                .collect(Collectors.toSet());
+
+        var buckets = commentArchiveRepository.findAll();
+        assertEquals(bucketIdsExpected, buckets.stream().map(CommentArchiveBucket::getId).collect(Collectors.toSet()));
+
+        var comments = buckets.stream().flatMap(b -> b.getComments().stream()).toList();
+        assertEquals(new HashSet<>(commentsInArchive), new HashSet<>(comments));
+    }
+
+    @Test
+    void archive_Again() {
+
+        var result = commentArchiveRepository.archive(commentsInArchive);
+        assertEquals(new HashSet<>(commentsInArchive), new HashSet<>(result));
+
+        var comments = commentArchiveRepository.findAll().stream().flatMap(b -> b.getComments().stream()).toList();
+        assertEquals(commentsInArchive.size(), comments.size());
+    }
+
+    @Test
+    void archive_Overflow() {
+
+        var createdAt = LocalDateTime.of(2021, 6, 10, 12, 0);
+        var comments = new ArrayList<Comment>();
+        for (int i = 0; i < CommentArchiveBucket.MAX_COMMENTS * 2 + 1; i++) {
+            comments.add(new Comment("busy-" + i, 100L, 1L, "comment " + i, createdAt.plusMinutes(i)));
+        }
+
+        // In two runs, the second one fills the last bucket up first
+        var firstRun = comments.subList(0, CommentArchiveBucket.MAX_COMMENTS + 100);
+        var secondRun = comments.subList(CommentArchiveBucket.MAX_COMMENTS + 100, comments.size());
+        assertEquals(firstRun.size(), commentArchiveRepository.archive(firstRun).size());
+        assertEquals(secondRun.size(), commentArchiveRepository.archive(secondRun).size());
+
+        // Archiving again does not add anything
+        assertEquals(comments.size(), commentArchiveRepository.archive(comments).size());
+
+        var month = CommentArchiveBucket.monthOf(createdAt);
+        var buckets = commentArchiveRepository.findAllByPostId(100L);
+        assertEquals(
+                Set.of(CommentArchiveBucket.idOf(100L, month), CommentArchiveBucket.idOf(100L, month, 1), CommentArchiveBucket.idOf(100L, month, 2)),
+                buckets.stream().map(CommentArchiveBucket::getId).collect(Collectors.toSet()));
+        assertTrue(buckets.stream().allMatch(b -> b.getComments().size() <= CommentArchiveBucket.MAX_COMMENTS));
+
+        var commentsArchived = buckets.stream().flatMap(b -> b.getComments().stream()).toList();
+        assertEquals(comments.size(), commentsArchived.size());
+        assertEquals(new HashSet<>(comments), new HashSet<>(commentsArchived));
+    }
+
+    @Test
+    void findAllByPostId() {
+
+        var postIds = commentsInArchive.stream().map(Comment::getPostId).distinct().toList();
+
+        for (var postId : postIds) {
+            var resultExpected = commentsInArchive.stream().filter(c -> c.getPostId().equals(postId)).toList();
+            var result = commentArchiveRepository.findAllByPostId(postId).stream().flatMap(b -> b.getComments().stream()).toList();
+            assertEquals(new HashSet<>(resultExpected), new HashSet<>(result));
+        }
+    }
+
+    @Test
+    void findCommentsByUserId() {
+
+        var userIds = commentsInArchive.stream().map(Comment::getUserId).distinct().toList();
+
+        for (var userId : userIds) {
+
+            var resultExpected = commentsInArchive.stream().filter(c -> c.getUserId().equals(userId)).collect(Collectors.toSet());
+
+            var result = commentArchiveRepository.findCommentsByUserId(userId);
+            assertEquals(resultExpected.size(), result.size());
+            assertEquals(resultExpected, new HashSet<>(result));
+
+            try (var resultStreamed = commentArchiveRepository.streamCommentsByUserId(userId)) {
+                assertEquals(resultExpected, resultStreamed.collect(Collectors.toSet()));
+            }
+        }
+    }
+
+    @Test
+    void findCommentsByUserId_NotFound() {
+        assertTrue(commentArchiveRepository.findCommentsByUserId(-1L).isEmpty());
+    }
+
+    @Test
+    void searchByContent() {
+
+        // Only the matching comments of the found buckets
+        var result = commentArchiveRepository.searchByContent("first third", null, null, null, null, 10);
+        var resultExpected = Set.of(commentsInArchive.get(0), commentsInArchive.get(2));
+        assertEquals(resultExpected, result.stream().map(CommentSearchHit::getComment).collect(Collectors.toSet()));
+
+        var resultOfUser = commentArchiveRepository.searchByContent("comment", 2L, 3L, null, null, 10);
+        var resultOfUserExpected = commentsInArchive.stream()
+                .filter(c -> c.getPostId().equals(2L) && c.getUserId().equals(3L))
+                .collect(Collectors.toSet());
+        assertEquals(resultOfUserExpected, resultOfUser.stream().map(CommentSearchHit::getComment).collect(Collectors.toSet()));
+    }
+
+    @Test
+    void searchByContent_Paged() {
+
+        var result = new ArrayList<Comment>();
+        Double afterScore = null;
+        String afterId = null;
+
+        List<CommentSearchHit> page;
+        while (!(page = commentArchiveRepository.searchByContent("comment", null, null, afterScore, afterId, 2)).isEmpty()) {
+            assertTrue(page.size() <= 2);
+            page.forEach(hit -> result.add(hit.getComment()));
+            afterScore = page.get(page.size() - 1).getScore();
+            afterId = page.get(page.size() - 1).getComment().getId();
+        }
+
+        assertEquals(commentsInArchive.size(), result.size());
+        assertEquals(new HashSet<>(commentsInArchive), new HashSet<>(result));
+    }
+
+    @Test
+    void searchByContent_Negated() {
+
+        // "first comment" shares its bucket with "fifth comment", which must still be found
+        var result = commentArchiveRepository.searchByContent("comment -first", null, null, null, null, 10);
+        var resultExpected = commentsInArchive.stream()
+                .filter(c -> !c.getContent().contains("first"))
+                .collect(Collectors.toSet());
+        assertEquals(resultExpected, result.stream().map(CommentSearchHit::getComment).collect(Collectors.toSet()));
+    }
+
+    @Test
+    void searchByContent_Phrase() {
+        var result = commentArchiveRepository.searchByContent("\"fifth comment\"", null, null, null, null, 10);
+        assertEquals(Set.of(commentsInArchive.get(4)), result.stream().map(CommentSearchHit::getComment).collect(Collectors.toSet()));
+    }
+
+    @Test
+    void searchByContent_NotStemmed() {
+        // A known limitation: the text index finds the buckets by the stem, but comments are matched by substring,
+        // so unlike the search over hot comments "comments" does not find "comment"
+        assertTrue(commentArchiveRepository.searchByContent("comments", null, null, null, null, 10).isEmpty());
+    }
+
+    @Test
+    void searchByContent_NotFound() {
+        assertTrue(commentArchiveRepository.searchByContent("nonexistent", null, null, null, null, 10).isEmpty());
+    }
+
+    @Test
+    void findCommentById() {
+        for (var comment : commentsInArchive) {
+            var result = commentArchiveRepository.findCommentById(comment.getId());
+            assertTrue(result.isPresent());
+            assertEquals(comment.getId(), result.get().getId());
+            assertEquals(comment, result.get());
+        }
+    }
+
+    @Test
+    void findCommentById_NotFound() {
+        assertTrue(commentArchiveRepository.findCommentById("-1").isEmpty());
+    }
+
+    @Test
+    void findAndDeleteCommentById() {
+
+        var comment = commentsInArchive.get(0);
+        assertEquals(Optional.of(comment), commentArchiveRepository.findAndDeleteCommentById(comment.getId()));
+
+        assertTrue(commentArchiveRepository.findCommentById(comment.getId()).isEmpty());
+        assertTrue(commentArchiveRepository.findAndDeleteCommentById(comment.getId()).isEmpty());
+
+        var comments = commentArchiveRepository.findAll().stream().flatMap(b -> b.getComments().stream()).toList();
+        assertEquals(commentsInArchive.size() - 1, comments.size());
+    }
+
+    @Test
+    void deleteCommentsById() {
+
+        var commentsToDelete = List.of(commentsInArchive.get(0), commentsInArchive.get(2));
+        var ids = new ArrayList<>(commentsToDelete.stream().map(Comment::getId).toList());
+        ids.add("-1");
+
+        commentArchiveRepository.deleteCommentsById(ids);
+
+        var commentsExpected = new HashSet<>(commentsInArchive);
+        commentsToDelete.forEach(commentsExpected::remove);
+
+        var comments = commentArchiveRepository.findAll().stream().flatMap(b -> b.getComments().stream()).collect(Collectors.toSet());
+        assertEquals(commentsExpected, comments);
+    }
+}
@@ -2,22 +2,27 @@ package org.example.commentservice.repository;
 
 import org.example.commentservice.BaseIntegrationTest;
 import org.example.commentservice.model.Comment;
+import org.example.commentservice.model.CommentSearchHit;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
+import org.springframework.context.annotation.Import;
 import org.springframework.test.annotation.DirtiesContext;
 
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashSet;
 import java.util.List;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.*;
 
 @DataMongoTest
+@Import(MongoIndexInitializer.class)
 @DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
 class CommentRepositoryTest extends BaseIntegrationTest {
 
@@ -91,4 +96,143 @@ class CommentRepositoryTest extends BaseIntegrationTest {
         var result = commentRepository.findAllByUserId(-1L);
         assertTrue(result.isEmpty());
     }
-}
\ No newline at end of file
+
+    @Test
+    void streamAllByPostId() {
+
+        var postIds = commentsInDB.stream().map(Comment::getPostId).distinct().toList();
+
+        for (var postId : postIds) {
+            var resultExpected = commentsInDB.stream().filter(c -> c.getPostId().equals(postId)).toList();
+            try (var result = commentRepository.streamAllByPostId(postId)) {
+                assertEquals(new HashSet<>(resultExpected), result.collect(Collectors.toSet()));
+            }
+        }
+    }
+
+    @Test
+    void streamAllByUserId() {
+
+        var userIds = commentsInDB.stream().map(Comment::getUserId).distinct().toList();
+
+        for (var userId : userIds) {
+            var resultExpected = commentsInDB.stream().filter(c -> c.getUserId().equals(userId)).toList();
+            try (var result = commentRepository.streamAllByUserId(userId)) {
+                assertEquals(new HashSet<>(resultExpected), result.collect(Collectors.toSet()));
+            }
+        }
+    }
+
+    @Test
+    void findCreatedBefore() {
+
+        var createdBefore = LocalDateTime.now().minusDays(2).plusMinutes(1);
+        var resultExpected = commentsInDB.stream()
+                .filter(c -> c.getCreatedAt().isBefore(createdBefore))
+                .sorted(Comparator.comparing(Comment::getCreatedAt))
+                .toList();
+
+        // Page by page, oldest first
+        var result = new ArrayList<Comment>();
+        Comment after = null;
+        List<Comment> page;
+        while (!(page = commentRepository.findCreatedBefore(createdBefore, after, 2)).isEmpty()) {
+            assertTrue(page.size() <= 2);
+            result.addAll(page);
+            after = page.get(page.size() - 1);
+        }
+
+        assertEquals(resultExpected, result);
+    }
+
+    @Test
+    void findCreatedBefore_SameCreatedAt() {
+
+        var createdAt = LocalDateTime.now().minusYears(3).truncatedTo(ChronoUnit.SECONDS);
+        var comments = commentRepository.saveAll(List.of(
+                new Comment(null, 7L, 7L, "same time", createdAt),
+                new Comment(null, 7L, 8L, "same time", createdAt),
+                new Comment(null, 7L, 9L, "same time", createdAt)));
+
+        var firstPage = commentRepository.findCreatedBefore(createdAt.plusSeconds(1), null, 2);
+        var secondPage = commentRepository.findCreatedBefore(createdAt.plusSeconds(1), firstPage.get(1), 2);
+
+        var result = new HashSet<>(firstPage);
+        result.addAll(secondPage);
+        assertEquals(3, firstPage.size() + secondPage.size());
+        assertEquals(new HashSet<>(comments), result);
+    }
+
+    @Test
+    void searchByContent() {
+
+        var result = commentsOf(commentRepository.searchByContent("comment", null, null, null, null, 100));
+        assertEquals(new HashSet<>(commentsInDB), new HashSet<>(result));
+
+        result = commentsOf(commentRepository.searchByContent("third", null, null, null, null, 100));
+        var resultExpected = commentsInDB.stream().filter(c -> c.getContent().contains("third")).toList();
+        assertEquals(resultExpected, result);
+    }
+
+    @Test
+    void searchByContent_Filtered() {
+
+        var postIds = commentsInDB.stream().map(Comment::getPostId).distinct().toList();
+
+        for (var postId : postIds) {
+            var resultExpected = commentsInDB.stream().filter(c -> c.getPostId().equals(postId)).toList();
+            var result = commentsOf(commentRepository.searchByContent("comment", postId, null, null, null, 100));
+            assertEquals(new HashSet<>(resultExpected), new HashSet<>(result));
+        }
+
+        var userIds = commentsInDB.stream().map(Comment::getUserId).distinct().toList();
+
+        for (var userId : userIds) {
+            var resultExpected = commentsInDB.stream().filter(c -> c.getUserId().equals(userId)).toList();
+            var result = commentsOf(commentRepository.searchByContent("comment", null, userId, null, null, 100));
+            assertEquals(new HashSet<>(resultExpected), new HashSet<>(result));
+        }
+    }
+
+    @Test
+    void searchByContent_Paged() {
+
+        var firstPage = commentRepository.searchByContent("comment", null, null, null, null, 3);
+        assertEquals(3, firstPage.size());
+
+        var lastHit = firstPage.get(firstPage.size() - 1);
+        var secondPage = commentRepository.searchByContent("comment", null, null,
+                lastHit.getScore(), lastHit.getComment().getId(), 3);
+        assertEquals(commentsInDB.size() - 3, secondPage.size());
+
+        var result = new HashSet<>(commentsOf(firstPage));
+        result.addAll(commentsOf(secondPage));
+        assertEquals(new HashSet<>(commentsInDB), result);
+    }
+
+    @Test
+    void searchByContent_PagedWithInsertion() {
+
+        var firstPage = commentRepository.searchByContent("comment", null, null, null, null, 3);
+        var lastHit = firstPage.get(firstPage.size() - 1);
+
+        // A comment inserted between the pages does not shift the next page
+        commentRepository.save(new Comment(null, 5L, 5L, "sixth comment", LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS)));
+
+        var secondPage = commentRepository.searchByContent("comment", null, null,
+                lastHit.getScore(), lastHit.getComment().getId(), 100);
+
+        var idsOfFirstPage = commentsOf(firstPage).stream().map(Comment::getId).toList();
+        assertTrue(commentsOf(secondPage).stream().noneMatch(c -> idsOfFirstPage.contains(c.getId())));
+    }
+
+    @Test
+    void searchByContent_NotFound() {
+        var result = commentRepository.searchByContent("nonexistent", null, null, null, null, 100);
+        assertTrue(result.isEmpty());
+    }
+
+    private static List<Comment> commentsOf(List<CommentSearchHit> hits) {
+        return hits.stream().map(CommentSearchHit::getComment).toList();
+    }
+}
@@ -0,0 +1,66 @@
+package org.example.commentservice.repository;
+
+import org.example.commentservice.BaseIntegrationTest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataMongoTest
+@Import(MongoJobLock.class)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class MongoJobLockTest extends BaseIntegrationTest {
+
+    private static final String JOB = "test-job";
+
+    @Autowired
+    private MongoJobLock mongoJobLock;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @AfterEach
+    void tearDown() {
+        mongoTemplate.dropCollection("job_locks");
+    }
+
+    @Test
+    void tryAcquire() {
+
+        var token = mongoJobLock.tryAcquire(JOB, Duration.ofMinutes(1));
+        assertTrue(token.isPresent());
+
+        // Held
+        assertTrue(mongoJobLock.tryAcquire(JOB, Duration.ofMinutes(1)).isEmpty());
+        assertTrue(mongoJobLock.extend(JOB, token.get(), Duration.ofMinutes(1)));
+        assertFalse(mongoJobLock.extend(JOB, "other", Duration.ofMinutes(1)));
+
+        // Released
+        mongoJobLock.release(JOB, token.get());
+        assertTrue(mongoJobLock.tryAcquire(JOB, Duration.ofMinutes(1)).isPresent());
+    }
+
+    @Test
+    void tryAcquire_Expired() throws InterruptedException {
+
+        var token = mongoJobLock.tryAcquire(JOB, Duration.ofMillis(50));
+        assertTrue(token.isPresent());
+
+        Thread.sleep(100);
+
+        var tokenTakenOver = mongoJobLock.tryAcquire(JOB, Duration.ofMinutes(1));
+        assertTrue(tokenTakenOver.isPresent());
+        assertFalse(mongoJobLock.extend(JOB, token.get(), Duration.ofMinutes(1)));
+
+        // The former holder does not release the lease of the new one
+        mongoJobLock.release(JOB, token.get());
+        assertTrue(mongoJobLock.tryAcquire(JOB, Duration.ofMinutes(1)).isEmpty());
+    }
+}
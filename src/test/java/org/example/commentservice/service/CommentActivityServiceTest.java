@@ -0,0 +1,178 @@
+package org.example.commentservice.service;
+
+import org.example.commentservice.BaseIntegrationTest;
+import org.example.commentservice.model.Comment;
+import org.example.commentservice.model.CommentActivity;
+import org.example.commentservice.repository.CommentActivityRepository;
+import org.example.commentservice.repository.CommentArchiveRepository;
+import org.example.commentservice.repository.CommentRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@DirtiesContext // the Mongo container is restarted for every test class, so the context must not be reused
+class CommentActivityServiceTest extends BaseIntegrationTest {
+
+    @Autowired
+    private CommentActivityService commentActivityService;
+
+    @Autowired
+    private CommentService commentService;
+
+    @Autowired
+    private CommentRepository commentRepository;
+
+    @Autowired
+    private CommentActivityRepository commentActivityRepository;
+
+    @Autowired
+    private CommentArchiveRepository commentArchiveRepository;
+
+    private List<Comment> commentsInDB;
+
+    @BeforeEach
+    void setUp() {
+
+        commentRepository.deleteAll();
+        commentActivityRepository.deleteAll();
+        commentArchiveRepository.deleteAll();
+
+        commentsInDB = List.of(
+                commentService.create(new Comment(null, 2L, 3L, "first comment", LocalDateTime.now().minusDays(1).truncatedTo(ChronoUnit.SECONDS))),
+                commentService.create(new Comment(null, 1L, 1L, "second comment", LocalDateTime.now().minusWeeks(1).truncatedTo(ChronoUnit.SECONDS))),
+                commentService.create(new Comment(null, 1L, 2L, "third comment", LocalDateTime.now().minusYears(1).truncatedTo(ChronoUnit.SECONDS))),
+                commentService.create(new Comment(null, 3L, 4L, "fourth comment", LocalDateTime.now().minusDays(2).truncatedTo(ChronoUnit.SECONDS))),
+                commentService.create(new Comment(null, 2L, 3L, "fifth comment", LocalDateTime.now().minusDays(5).truncatedTo(ChronoUnit.SECONDS))),
+                commentService.create(new Comment(null, 2L, 1L, "sixth comment", LocalDateTime.now().minusDays(5).truncatedTo(ChronoUnit.SECONDS)))
+        );
+    }
+
+    @Test
+    void testGetPostActivity() {
+
+        var postIds = commentsInDB.stream().map(Comment::getPostId).distinct().toList();
+
+        for (var postId : postIds) {
+            var commentsByPostId = commentsInDB.stream().filter(c -> c.getPostId().equals(postId)).toList();
+            var result = commentActivityService.getPostActivity(postId);
+            assertActivity(commentsByPostId, result);
+        }
+    }
+
+    @Test
+    void testGetPostActivity_NotFound() {
+        assertNull(commentActivityService.getPostActivity(-1L));
+    }
+
+    @Test
+    void testGetUserActivity() {
+
+        var userIds = commentsInDB.stream().map(Comment::getUserId).distinct().toList();
+
+        for (var userId : userIds) {
+            var commentsByUserId = commentsInDB.stream().filter(c -> c.getUserId().equals(userId)).toList();
+            var result = commentActivityService.getUserActivity(userId);
+            assertActivity(commentsByUserId, result);
+        }
+    }
+
+    @Test
+    void testGetUserActivity_NotFound() {
+        assertNull(commentActivityService.getUserActivity(-1L));
+    }
+
+    @Test
+    void testOnCommentDeleted() {
+
+        var postId = 2L;
+
+        // The latest comment of the post is deleted, so 'lastCommentedAt' must move back to the previous one
+        var commentToDelete = commentsInDB.stream()
+                .filter(c -> c.getPostId().equals(postId))
+                .max(Comparator.comparing(Comment::getCreatedAt))
+                .orElseThrow();
+
+        commentService.deleteById(commentToDelete.getId());
+
+        var commentsLeft = commentsInDB.stream().filter(c -> !c.getId().equals(commentToDelete.getId())).toList();
+
+        assertActivity(commentsLeft.stream().filter(c -> c.getPostId().equals(postId)).toList(),
+                commentActivityService.getPostActivity(postId));
+        assertActivity(commentsLeft.stream().filter(c -> c.getUserId().equals(commentToDelete.getUserId())).toList(),
+                commentActivityService.getUserActivity(commentToDelete.getUserId()));
+    }
+
+    @Test
+    void testOnCommentDeleted_RestArchived() {
+
+        var postId = 2L;
+
+        var commentsByPostId = commentsInDB.stream()
+                .filter(c -> c.getPostId().equals(postId))
+                .sorted(Comparator.comparing(Comment::getCreatedAt).reversed())
+                .toList();
+        var commentToDelete = commentsByPostId.get(0);
+
+        // All the other comments of the post, and of the user, are only in the archive now
+        var commentsArchived = commentsByPostId.subList(1, commentsByPostId.size());
+        commentArchiveRepository.archive(commentsArchived);
+        commentRepository.deleteAllById(commentsArchived.stream().map(Comment::getId).toList());
+
+        commentService.deleteById(commentToDelete.getId());
+
+        var commentsLeft = commentsInDB.stream().filter(c -> !c.getId().equals(commentToDelete.getId())).toList();
+
+        assertActivity(commentsLeft.stream().filter(c -> c.getPostId().equals(postId)).toList(),
+                commentActivityService.getPostActivity(postId));
+        assertActivity(commentsLeft.stream().filter(c -> c.getUserId().equals(commentToDelete.getUserId())).toList(),
+                commentActivityService.getUserActivity(commentToDelete.getUserId()));
+    }
+
+    @Test
+    void testRebuild() {
+
+        var activitiesBefore = commentActivityRepository.findAll();
+        commentActivityRepository.deleteAll();
+
+        var result = commentActivityService.rebuild();
+
+        var postsCount = commentsInDB.stream().map(Comment::getPostId).distinct().count();
+        var usersCount = commentsInDB.stream().map(Comment::getUserId).distinct().count();
+        assertEquals(postsCount + usersCount, result);
+
+        // The rebuilt activity must be the same as the one maintained incrementally
+        var activitiesAfter = commentActivityRepository.findAll();
+        assertEquals(
+                activitiesBefore.stream().collect(Collectors.toMap(CommentActivity::getId, Function.identity())),
+                activitiesAfter.stream().collect(Collectors.toMap(CommentActivity::getId, Function.identity())));
+    }
+
+    private void assertActivity(List<Comment> commentsExpected, CommentActivity activity) {
+
+        assertNotNull(activity);
+        assertEquals(commentsExpected.size(), activity.getCommentsCount());
+
+        var lastCommentedAtExpected = commentsExpected.stream().map(Comment::getCreatedAt).max(Comparator.naturalOrder()).orElseThrow();
+        assertEquals(lastCommentedAtExpected, activity.getLastCommentedAt());
+
+        var dailyCountsExpected = commentsExpected.stream()
+                .collect(Collectors.groupingBy(c -> CommentActivity.dayOf(c.getCreatedAt()), Collectors.counting()));
+        var dailyCounts = activity.getDailyCounts().entrySet().stream()
+                .filter(entry -> entry.getValue() > 0)
+                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+        assertEquals(dailyCountsExpected, dailyCounts);
+    }
+}
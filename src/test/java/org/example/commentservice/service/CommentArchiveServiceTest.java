@@ -0,0 +1,234 @@
+package org.example.commentservice.service;
+
+import org.example.commentservice.BaseIntegrationTest;
+import org.example.commentservice.model.Comment;
+import org.example.commentservice.model.CommentPage;
+import org.example.commentservice.repository.CommentArchiveRepository;
+import org.example.commentservice.repository.CommentRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.test.annotation.DirtiesContext;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+
+@SpringBootTest
+@DirtiesContext // the Mongo container is restarted for every test class, so the context must not be reused
+class CommentArchiveServiceTest extends BaseIntegrationTest {
+
+    @Autowired
+    private CommentArchiveService commentArchiveService;
+
+    @Autowired
+    private CommentService commentService;
+
+    @Autowired
+    private CommentRepository commentRepository;
+
+    @SpyBean
+    private CommentArchiveRepository commentArchiveRepository;
+
+    private List<Comment> commentsInDB;
+    private List<Comment> commentsOld;
+
+    @BeforeEach
+    void setUp() {
+
+        commentRepository.deleteAll();
+        commentArchiveRepository.deleteAll();
+
+        commentsInDB = commentRepository.saveAll(List.of(
+                new Comment(null, 2L, 3L, "first comment", LocalDateTime.now().minusDays(1).truncatedTo(ChronoUnit.SECONDS)),
+                new Comment(null, 1L, 1L, "second comment", LocalDateTime.now().minusWeeks(1).truncatedTo(ChronoUnit.SECONDS)),
+                new Comment(null, 1L, 2L, "third comment", LocalDateTime.now().minusYears(2).truncatedTo(ChronoUnit.SECONDS)),
+                new Comment(null, 3L, 4L, "fourth comment", LocalDateTime.now().minusYears(3).truncatedTo(ChronoUnit.SECONDS)),
+                new Comment(null, 2L, 3L, "fifth comment", LocalDateTime.now().minusYears(2).minusMonths(1).truncatedTo(ChronoUnit.SECONDS))
+        ));
+
+        commentsOld = commentsInDB.stream()
+                .filter(c -> c.getCreatedAt().isBefore(LocalDateTime.now().minusYears(1)))
+                .toList();
+    }
+
+    @Test
+    void testArchiveOldComments() {
+
+        var result = commentArchiveService.archiveOldComments();
+        assertEquals(commentsOld.size(), result);
+
+        var commentsHot = commentRepository.findAll();
+        var commentsHotExpected = commentsInDB.stream().filter(c -> !commentsOld.contains(c)).toList();
+        assertEquals(new HashSet<>(commentsHotExpected), new HashSet<>(commentsHot));
+
+        var commentsArchived = commentArchiveRepository.findAll().stream()
+                .flatMap(b -> b.getComments().stream())
+                .collect(Collectors.toSet());
+        assertEquals(new HashSet<>(commentsOld), commentsArchived);
+
+        // Nothing is left to archive
+        assertEquals(0, commentArchiveService.archiveOldComments());
+    }
+
+    @Test
+    void testArchiveOldComments_Concurrently() throws InterruptedException {
+
+        // As on several instances of the service, all scheduled at the same time
+        var archivers = 4;
+        var executor = Executors.newFixedThreadPool(archivers);
+        var start = new CountDownLatch(1);
+        var results = new ArrayList<Future<Long>>();
+
+        for (int i = 0; i < archivers; i++) {
+            results.add(executor.submit(() -> {
+                start.await();
+                return commentArchiveService.archiveOldComments();
+            }));
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(60, TimeUnit.SECONDS));
+
+        long archivedCount = 0;
+        for (var result : results) {
+            try {
+                archivedCount += result.get();
+            } catch (ExecutionException e) {
+                fail(e.getCause());
+            }
+        }
+        assertEquals(commentsOld.size(), archivedCount);
+
+        // No comment is lost
+        var commentsArchived = commentArchiveRepository.findAll().stream()
+                .flatMap(b -> b.getComments().stream())
+                .collect(Collectors.toSet());
+        assertEquals(new HashSet<>(commentsOld), commentsArchived);
+        for (var comment : commentsInDB) {
+            assertEquals(comment, commentService.getById(comment.getId()));
+        }
+    }
+
+    @Test
+    void testArchiveOldComments_DeletedWhileArchiving() {
+
+        // A user deletes the comment after the archiver has read it, but before it is archived
+        var commentDeleted = commentsOld.get(0);
+        doAnswer(invocation -> {
+            commentService.deleteById(commentDeleted.getId());
+            return invocation.callRealMethod();
+        }).when(commentArchiveRepository).archive(anyList());
+
+        var result = commentArchiveService.archiveOldComments();
+        assertEquals(commentsOld.size() - 1, result);
+
+        assertNull(commentService.getById(commentDeleted.getId()));
+
+        var commentsArchived = commentArchiveRepository.findAll().stream()
+                .flatMap(b -> b.getComments().stream())
+                .collect(Collectors.toSet());
+        var commentsArchivedExpected = new HashSet<>(commentsOld);
+        commentsArchivedExpected.remove(commentDeleted);
+        assertEquals(commentsArchivedExpected, commentsArchived);
+    }
+
+    @Test
+    void testGetById_Archived() {
+
+        commentArchiveService.archiveOldComments();
+
+        for (var comment : commentsInDB) {
+            var result = commentService.getById(comment.getId());
+            assertEquals(comment, result);
+        }
+    }
+
+    @Test
+    void testGetAllByPostId_Archived() {
+
+        commentArchiveService.archiveOldComments();
+
+        var postIds = commentsInDB.stream().map(Comment::getPostId).distinct().toList();
+
+        for (var postId : postIds) {
+
+            var resultExpected = commentsInDB.stream().filter(c -> c.getPostId().equals(postId)).toList();
+
+            var result = commentService.getAllByPostId(postId);
+            assertEquals(new HashSet<>(resultExpected), new HashSet<>(result));
+
+            try (var resultStreamed = commentService.streamAllByPostId(postId)) {
+                assertEquals(new HashSet<>(resultExpected), resultStreamed.collect(Collectors.toSet()));
+            }
+        }
+    }
+
+    @Test
+    void testGetAllByUserId_Archived() {
+
+        commentArchiveService.archiveOldComments();
+
+        var userIds = commentsInDB.stream().map(Comment::getUserId).distinct().toList();
+
+        for (var userId : userIds) {
+
+            var resultExpected = commentsInDB.stream().filter(c -> c.getUserId().equals(userId)).toList();
+
+            var result = commentService.getAllByUserId(userId);
+            assertEquals(new HashSet<>(resultExpected), new HashSet<>(result));
+
+            try (var resultStreamed = commentService.streamAllByUserId(userId)) {
+                assertEquals(new HashSet<>(resultExpected), resultStreamed.collect(Collectors.toSet()));
+            }
+        }
+    }
+
+    @Test
+    void testSearch_Archived() {
+
+        commentArchiveService.archiveOldComments();
+
+        // Pages of 2 go through the hot comments, then through the archived ones
+        var result = new ArrayList<Comment>();
+        String after = null;
+        CommentPage page;
+        do {
+            page = commentService.search("comment", null, null, 2, after);
+            assertTrue(page.getComments().size() <= 2);
+            result.addAll(page.getComments());
+            after = page.getEndCursor();
+        } while (page.isHasNextPage());
+
+        assertEquals(commentsInDB.size(), result.size());
+        assertEquals(new HashSet<>(commentsInDB), new HashSet<>(result));
+
+        var commentsHotFound = result.subList(0, commentsInDB.size() - commentsOld.size());
+        assertTrue(commentsOld.stream().noneMatch(commentsHotFound::contains));
+    }
+
+    @Test
+    void testDeleteById_Archived() {
+
+        commentArchiveService.archiveOldComments();
+
+        for (var comment : commentsOld) {
+            commentService.deleteById(comment.getId());
+            assertNull(commentService.getById(comment.getId()));
+        }
+    }
+}
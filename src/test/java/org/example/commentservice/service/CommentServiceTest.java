@@ -12,6 +12,10 @@ import org.springframework.boot.test.mock.mockito.SpyBean;
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
 import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.anyString;
@@ -26,6 +30,9 @@ class CommentServiceTest extends BaseIntegrationTest {
     @SpyBean
     private CommentRepository commentRepository;
 
+    @SpyBean
+    private CommentActivityService commentActivityService;
+
     private List<Comment> commentsInDB;
 
     @BeforeEach
@@ -103,6 +110,75 @@ class CommentServiceTest extends BaseIntegrationTest {
         verify(commentRepository, times(1)).findAllByUserId(userId);
     }
 
+    @Test
+    void testStreamAllByPostId() {
+
+        var postIds = commentsInDB.stream().map(Comment::getPostId).distinct().toList();
+
+        for (var postId : postIds) {
+            var resultExpected = commentsInDB.stream().filter(c -> c.getPostId().equals(postId)).toList();
+            try (var result = commentService.streamAllByPostId(postId)) {
+                assertEquals(new HashSet<>(resultExpected), result.collect(Collectors.toSet()));
+            }
+            verify(commentRepository, times(1)).streamAllByPostId(postId);
+        }
+
+        verify(commentRepository, times(postIds.size())).streamAllByPostId(anyLong());
+    }
+
+    @Test
+    void testStreamAllByUserId() {
+
+        var userIds = commentsInDB.stream().map(Comment::getUserId).distinct().toList();
+
+        for (var userId : userIds) {
+            var resultExpected = commentsInDB.stream().filter(c -> c.getUserId().equals(userId)).toList();
+            try (var result = commentService.streamAllByUserId(userId)) {
+                assertEquals(new HashSet<>(resultExpected), result.collect(Collectors.toSet()));
+            }
+            verify(commentRepository, times(1)).streamAllByUserId(userId);
+        }
+
+        verify(commentRepository, times(userIds.size())).streamAllByUserId(anyLong());
+    }
+
+    @Test
+    void testSearch() {
+
+        var postId = 1L;
+        var resultExpected = commentsInDB.stream().filter(c -> c.getPostId().equals(postId)).toList();
+
+        var firstPage = commentService.search("comment", postId, null, 1, null);
+        assertEquals(1, firstPage.getComments().size());
+        assertTrue(firstPage.isHasNextPage());
+        assertNotNull(firstPage.getEndCursor());
+
+        var secondPage = commentService.search("comment", postId, null, 1, firstPage.getEndCursor());
+        assertEquals(1, secondPage.getComments().size());
+        assertFalse(secondPage.isHasNextPage());
+
+        var result = new HashSet<>(firstPage.getComments());
+        result.addAll(secondPage.getComments());
+        assertEquals(new HashSet<>(resultExpected), result);
+
+        verify(commentRepository, times(1)).searchByContent("comment", postId, null, null, null, 2);
+        verify(commentRepository, times(1)).searchByContent(eq("comment"), eq(postId), isNull(), anyDouble(), anyString(), eq(2));
+    }
+
+    @Test
+    void testSearch_NotFound() {
+        var result = commentService.search("nonexistent", null, null, null, null);
+        assertTrue(result.getComments().isEmpty());
+        assertFalse(result.isHasNextPage());
+        assertNull(result.getEndCursor());
+    }
+
+    @Test
+    void testSearch_InvalidCursor() {
+        assertThrows(InvalidCursorException.class, () -> commentService.search("comment", null, null, null, "invalid"));
+        verify(commentRepository, never()).searchByContent(anyString(), any(), any(), any(), any(), anyInt());
+    }
+
     @Test
     void testCreate() {
 
@@ -111,14 +187,42 @@ class CommentServiceTest extends BaseIntegrationTest {
         var result = commentService.create(newComment);
         assertEquals(newComment, result);
         verify(commentRepository, times(1)).save(any(Comment.class));
+        verify(commentActivityService, times(1)).onCommentCreated(result);
     }
 
     @Test
     void testDeleteById() {
         for (var comment : commentsInDB) {
             commentService.deleteById(comment.getId());
-            verify(commentRepository, times(1)).deleteById(comment.getId());
+            verify(commentRepository, times(1)).findAndDeleteById(comment.getId());
+            verify(commentActivityService, times(1)).onCommentDeleted(comment);
+            assertNull(commentService.getById(comment.getId()));
+        }
+        verify(commentRepository, times(commentsInDB.size())).findAndDeleteById(anyString());
+    }
+
+    @Test
+    void testDeleteById_Concurrently() throws InterruptedException {
+
+        var comment = commentsInDB.get(0);
+        var threads = 8;
+        var executor = Executors.newFixedThreadPool(threads);
+        var start = new CountDownLatch(1);
+
+        for (int i = 0; i < threads; i++) {
+            executor.submit(() -> {
+                start.await();
+                commentService.deleteById(comment.getId());
+                return null;
+            });
         }
-        verify(commentRepository, times(commentsInDB.size())).deleteById(anyString());
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+        // The comment is counted out once
+        verify(commentRepository, times(threads)).findAndDeleteById(comment.getId());
+        verify(commentActivityService, times(1)).onCommentDeleted(comment);
+        assertNull(commentService.getById(comment.getId()));
     }
 }
\ No newline at end of file
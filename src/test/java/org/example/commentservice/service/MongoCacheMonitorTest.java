@@ -0,0 +1,46 @@
+package org.example.commentservice.service;
+
+import org.example.commentservice.BaseIntegrationTest;
+import org.example.commentservice.model.Comment;
+import org.example.commentservice.repository.CommentRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@DirtiesContext // the Mongo container is restarted for every test class, so the context must not be reused
+class MongoCacheMonitorTest extends BaseIntegrationTest {
+
+    @Autowired
+    private MongoCacheMonitor mongoCacheMonitor;
+
+    @Autowired
+    private CommentRepository commentRepository;
+
+    @Test
+    void testSample() {
+
+        // No window yet
+        mongoCacheMonitor.sample();
+        assertTrue(Double.isNaN(mongoCacheMonitor.getHitRatio()));
+
+        commentRepository.saveAll(List.of(
+                new Comment(null, 1L, 1L, "first comment", LocalDateTime.now()),
+                new Comment(null, 1L, 2L, "second comment", LocalDateTime.now())));
+        for (int i = 0; i < 10; i++) {
+            assertEquals(2, commentRepository.findAllByPostId(1L).size());
+        }
+
+        mongoCacheMonitor.sample();
+        var hitRatio = mongoCacheMonitor.getHitRatio();
+        assertTrue(hitRatio >= 0 && hitRatio <= 1, "Hit ratio: " + hitRatio);
+
+        commentRepository.deleteAll();
+    }
+}
@@ -0,0 +1,59 @@
+package org.example.commentservice.throttling;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MongoLoadMonitorTest {
+
+    @Test
+    void testLatency() {
+
+        var monitor = new MongoLoadMonitor(new SimpleMeterRegistry(), 60_000);
+
+        monitor.onCommandStarted(1);
+        assertEquals(1, monitor.getInFlight());
+
+        monitor.onCommandCompleted(1, 1000);
+        assertEquals(0, monitor.getInFlight());
+        assertTrue(monitor.getLatencyMillis() > 90 && monitor.getLatencyMillis() <= 100, "Latency: " + monitor.getLatencyMillis());
+    }
+
+    @Test
+    void testLatency_DecaysWithoutCommands() throws InterruptedException {
+
+        var monitor = new MongoLoadMonitor(new SimpleMeterRegistry(), 10);
+
+        for (int i = 0; i < 50; i++) {
+            monitor.onCommandStarted(i);
+            monitor.onCommandCompleted(i, 1000);
+        }
+        assertTrue(monitor.getLatencyMillis() > 0);
+
+        Thread.sleep(200);
+        assertTrue(monitor.getLatencyMillis() < 1, "Latency: " + monitor.getLatencyMillis());
+    }
+
+    @Test
+    void testRunAsMaintenance() {
+
+        var monitor = new MongoLoadMonitor(new SimpleMeterRegistry(), 60_000);
+
+        var result = monitor.runAsMaintenance(() -> {
+            monitor.onCommandStarted(1);
+            return "done";
+        });
+        assertEquals("done", result);
+        assertEquals(0, monitor.getInFlight());
+
+        // Completed on another thread, after the job
+        monitor.onCommandCompleted(1, 1000);
+        assertEquals(0, monitor.getInFlight());
+        assertEquals(0, monitor.getLatencyMillis());
+
+        // Commands outside of the job are tracked again
+        monitor.onCommandStarted(2);
+        assertEquals(1, monitor.getInFlight());
+    }
+}
@@ -0,0 +1,108 @@
+package org.example.commentservice.throttling;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class MutationThrottlerTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private MongoLoadMonitor mongoLoadMonitor;
+    private MutationThrottler mutationThrottler;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        mongoLoadMonitor = mock(MongoLoadMonitor.class);
+        // Users: 2 comments, posts: 3 comments, (almost) no refill
+        mutationThrottler = new MutationThrottler(mongoLoadMonitor, meterRegistry, 2, 0.001, 3, 0.001, 10, 100);
+    }
+
+    @Test
+    void testAcquire() {
+
+        mutationThrottler.acquire(MutationThrottler.Priority.LOW, 1L, 1L);
+        mutationThrottler.acquire(MutationThrottler.Priority.LOW, 1L, 1L);
+        mutationThrottler.acquire(MutationThrottler.Priority.LOW, 2L, 2L);
+
+        assertEquals(3, countOf("accepted"));
+    }
+
+    @Test
+    void testAcquire_ThrottledByUser() {
+
+        mutationThrottler.acquire(MutationThrottler.Priority.LOW, 1L, 1L);
+        mutationThrottler.acquire(MutationThrottler.Priority.LOW, 1L, 2L);
+
+        var exception = assertThrows(MutationRejectedException.class,
+                () -> mutationThrottler.acquire(MutationThrottler.Priority.LOW, 1L, 3L));
+        assertEquals(MutationRejectedException.Reason.THROTTLED, exception.getReason());
+
+        // Other users are not affected
+        mutationThrottler.acquire(MutationThrottler.Priority.LOW, 2L, 3L);
+
+        assertEquals(3, countOf("accepted"));
+        assertEquals(1, countOf("throttled"));
+    }
+
+    @Test
+    void testAcquire_ThrottledByPost() {
+
+        mutationThrottler.acquire(MutationThrottler.Priority.LOW, 1L, 1L);
+        mutationThrottler.acquire(MutationThrottler.Priority.LOW, 2L, 1L);
+        mutationThrottler.acquire(MutationThrottler.Priority.LOW, 3L, 1L);
+
+        var exception = assertThrows(MutationRejectedException.class,
+                () -> mutationThrottler.acquire(MutationThrottler.Priority.LOW, 4L, 1L));
+        assertEquals(MutationRejectedException.Reason.THROTTLED, exception.getReason());
+
+        // The token of the user is given back, so the user can still comment elsewhere
+        mutationThrottler.acquire(MutationThrottler.Priority.LOW, 4L, 2L);
+        mutationThrottler.acquire(MutationThrottler.Priority.LOW, 4L, 2L);
+
+        assertEquals(5, countOf("accepted"));
+        assertEquals(1, countOf("throttled"));
+    }
+
+    @Test
+    void testAcquire_ShedByInFlight() {
+
+        when(mongoLoadMonitor.getInFlight()).thenReturn(10);
+
+        var exception = assertThrows(MutationRejectedException.class,
+                () -> mutationThrottler.acquire(MutationThrottler.Priority.LOW, 1L, 1L));
+        assertEquals(MutationRejectedException.Reason.SHED, exception.getReason());
+
+        // High priority mutations are never shed
+        mutationThrottler.acquire(MutationThrottler.Priority.HIGH, null, null);
+
+        assertEquals(1, countOf("accepted"));
+        assertEquals(1, countOf("shed"));
+    }
+
+    @Test
+    void testAcquire_ShedByLatency() {
+
+        when(mongoLoadMonitor.getLatencyMillis()).thenReturn(100d);
+
+        var exception = assertThrows(MutationRejectedException.class,
+                () -> mutationThrottler.acquire(MutationThrottler.Priority.LOW, 1L, 1L));
+        assertEquals(MutationRejectedException.Reason.SHED, exception.getReason());
+
+        // Shed mutations do not take tokens
+        when(mongoLoadMonitor.getLatencyMillis()).thenReturn(0d);
+        mutationThrottler.acquire(MutationThrottler.Priority.LOW, 1L, 1L);
+        mutationThrottler.acquire(MutationThrottler.Priority.LOW, 1L, 1L);
+
+        assertEquals(2, countOf("accepted"));
+        assertEquals(1, countOf("shed"));
+    }
+
+    private double countOf(String outcome) {
+        return meterRegistry.get("comment.mutations").tag("outcome", outcome).counter().count();
+    }
+}
@@ -0,0 +1,67 @@
+package org.example.commentservice.throttling;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenBucketTest {
+
+    @Test
+    void testTryConsume() {
+
+        var bucket = new TokenBucket(3, 0.001);
+
+        assertTrue(bucket.tryConsume());
+        assertTrue(bucket.tryConsume());
+        assertTrue(bucket.tryConsume());
+        assertFalse(bucket.tryConsume());
+    }
+
+    @Test
+    void testTryConsume_Refilled() throws InterruptedException {
+
+        var bucket = new TokenBucket(1, 100);
+
+        assertTrue(bucket.tryConsume());
+        Thread.sleep(50);
+        assertTrue(bucket.tryConsume());
+    }
+
+    @Test
+    void testTryConsume_Concurrently() throws InterruptedException {
+
+        var capacity = 100;
+        var bucket = new TokenBucket(capacity, 0.001);
+        var consumed = new AtomicInteger();
+
+        var executor = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < capacity * 10; i++) {
+            executor.execute(() -> {
+                if (bucket.tryConsume()) {
+                    consumed.incrementAndGet();
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(capacity, consumed.get());
+    }
+
+    @Test
+    void testGiveBack() {
+
+        var bucket = new TokenBucket(1, 0.001);
+
+        assertTrue(bucket.tryConsume());
+        assertFalse(bucket.isFull());
+
+        bucket.giveBack();
+        assertTrue(bucket.isFull());
+        assertTrue(bucket.tryConsume());
+    }
+}